@@ -0,0 +1,100 @@
+/*
+ *      CDCStream/StatisticsBenchmark.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package CDCStream;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import DataStreamReader.CategoricalBlock;
+import DataStreamReader.SyntheticCategoricalStream;
+import DataStreamReader.SyntheticCategoricalStream.DriftPattern;
+
+
+/**
+ * Cost of every stage of summarizing one block with CDCStream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StatisticsBenchmark {
+
+    @Param({"10", "41"})
+    public int numAttributes;
+
+    @Param({"10", "100"})
+    public int domainSize;
+
+    @Param({"10000"})
+    public int blockSize;
+
+    @Param({"NONE", "ABRUPT"})
+    public DriftPattern driftPattern;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        SyntheticCategoricalStream stream =
+                new SyntheticCategoricalStream(numAttributes, domainSize, driftPattern, blockSize / 2, 0);
+        block = stream.nextBlock(blockSize);
+        statistics = new DatabaseStatistics(block);
+        uncertainties = SymmetricalUncertainties.of(statistics);
+        detector = new DriftDetector(null, blockSize, 3);
+    }
+
+    @Benchmark
+    public DatabaseStatistics buildStatistics() {
+        return new DatabaseStatistics(block);
+    }
+
+    @Benchmark
+    public SymmetricalUncertainties symmetricalUncertainties() {
+        return SymmetricalUncertainties.of(statistics);
+    }
+
+    @Benchmark
+    public void distanceMatrices(Blackhole blackhole) {
+        for (int attribute = 0; attribute < numAttributes; attribute++) {
+            blackhole.consume(DILCA.distanceMatrixFor(statistics, uncertainties, attribute));
+        }
+    }
+
+    @Benchmark
+    public void fusedSummaries(Blackhole blackhole) {
+        for (int attribute = 0; attribute < numAttributes; attribute++) {
+            blackhole.consume(DILCA.summaryFor(statistics, uncertainties, attribute));
+        }
+    }
+
+    @Benchmark
+    public double summary() {
+        return detector.summaryOf(new DatabaseStatistics(block));
+    }
+
+    private CategoricalBlock block;
+    private DatabaseStatistics statistics;
+    private SymmetricalUncertainties uncertainties;
+    private DriftDetector detector;
+
+}
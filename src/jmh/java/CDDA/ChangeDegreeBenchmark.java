@@ -0,0 +1,72 @@
+/*
+ *      CDDA/ChangeDegreeBenchmark.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package CDDA;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import DataStreamReader.CategoricalBlock;
+import DataStreamReader.SyntheticCategoricalStream;
+import DataStreamReader.SyntheticCategoricalStream.DriftPattern;
+
+
+/**
+ * Cost of computing the change degree between two consecutive blocks with CDDA.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ChangeDegreeBenchmark {
+
+    @Param({"10", "41"})
+    public int numAttributes;
+
+    @Param({"10", "1000"})
+    public int domainSize;
+
+    @Param({"10000"})
+    public int blockSize;
+
+    @Param({"NONE", "ABRUPT", "GRADUAL"})
+    public DriftPattern driftPattern;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        SyntheticCategoricalStream stream =
+                new SyntheticCategoricalStream(numAttributes, domainSize, driftPattern, blockSize, 0);
+        firstBlock = stream.nextBlock(blockSize);
+        secondBlock = stream.nextBlock(blockSize);
+        detector = new DriftDetector(null, blockSize, 0.1);
+    }
+
+    @Benchmark
+    public double changeDegree() {
+        return detector.changeDegreeFor(firstBlock, secondBlock);
+    }
+
+    private CategoricalBlock firstBlock, secondBlock;
+    private DriftDetector detector;
+
+}
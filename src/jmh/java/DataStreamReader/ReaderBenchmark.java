@@ -0,0 +1,95 @@
+/*
+ *      DataStreamReader/ReaderBenchmark.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DataStreamReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * Throughput of the readers, in records per second, over a synthetic CSV file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(ReaderBenchmark.numRecords)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReaderBenchmark {
+
+    static final int numRecords = 100000;
+
+    @Param({"10", "41"})
+    public int numAttributes;
+
+    @Param({"10", "1000"})
+    public int domainSize;
+
+    @Param({"10000"})
+    public int blockSize;
+
+    @Setup(Level.Trial)
+    public void writeFile() throws IOException {
+        file = File.createTempFile("ReaderBenchmark", ".csv");
+        file.deleteOnExit();
+        new SyntheticCategoricalStream(numAttributes, domainSize, SyntheticCategoricalStream.DriftPattern.NONE,
+                numRecords, 0).writeTo(file, numRecords);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Benchmark
+    public int csvReader() throws IOException {
+        return readAll(new CategoricalRecordStreamReader(file.getPath(), false));
+    }
+
+    @Benchmark
+    public int mappedReader() throws IOException {
+        try (MappedCategoricalStreamReader stream = new MappedCategoricalStreamReader(file.getPath(), false)) {
+            return readAll(stream);
+        }
+    }
+
+    private File file;
+
+    private int readAll(CategoricalStreamReader stream) {
+        int count = 0;
+        CategoricalBlock block;
+        try {
+            while (true) {
+                block = stream.block(blockSize);
+                stream.discard(block.size());
+                count += block.size();
+            }
+        } catch (NoSuchElementException e) {
+            return count;
+        }
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+ *      DataStreamReader/SyntheticCategoricalStream.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DataStreamReader;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+
+/**
+ * Generates reproducible streams of correlated categorical records whose
+ * underlying concept changes according to a drift pattern.
+ *
+ * Every record is derived from a hidden value: with probability `1 - noise`
+ * each attribute takes a value determined by the hidden value and the current
+ * concept, otherwise a uniformly random one. Values of attribute `i` are coded
+ * `0` to `domainSize - 1` and written as `a<i>v<code>`.
+ */
+public final class SyntheticCategoricalStream {
+
+    public enum DriftPattern {
+        /** A single concept for the whole stream. */
+        NONE,
+        /** The concept changes at once every `driftPeriod` records. */
+        ABRUPT,
+        /** Records of the next concept become more frequent over `driftPeriod` records. */
+        GRADUAL
+    }
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    public SyntheticCategoricalStream(int numAttributes,
+                                      int domainSize,
+                                      DriftPattern driftPattern,
+                                      int driftPeriod,
+                                      long seed) {
+        this.numAttributes = numAttributes;
+        this.domainSize = domainSize;
+        this.driftPattern = driftPattern;
+        this.driftPeriod = driftPeriod;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Generates the next `size` records of the stream as a block.
+     */
+    public CategoricalBlock nextBlock(int size) {
+        int[][] columns = new int[numAttributes][size];
+        int[] record = new int[numAttributes];
+
+        for (int r = 0; r < size; r++) {
+            nextRecord(record);
+            for (int i = 0; i < numAttributes; i++) {
+                columns[i][r] = record[i];
+            }
+        }
+
+        int[] domainSizes = new int[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            domainSizes[i] = domainSize;
+        }
+
+        return new CategoricalBlock((int) (count - size), size, columns, domainSizes);
+    }
+
+    /**
+     * Writes the next `numRecords` records of the stream to a CSV file.
+     */
+    public void writeTo(File file, int numRecords) throws IOException {
+        int[] record = new int[numAttributes];
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            for (int r = 0; r < numRecords; r++) {
+                nextRecord(record);
+                for (int i = 0; i < numAttributes; i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    writer.write('a');
+                    writer.write(Integer.toString(i));
+                    writer.write('v');
+                    writer.write(Integer.toString(record[i]));
+                }
+                writer.write("\r\n");
+            }
+        }
+    }
+
+    private static final double noise = 0.1;
+
+    private final int numAttributes;
+    private final int domainSize;
+    private final DriftPattern driftPattern;
+    private final int driftPeriod;
+    private final Random random;
+    private long count = 0;
+
+    private void nextRecord(int[] record) {
+        int concept = conceptOf(count);
+        int hiddenValue = skewedValue();
+
+        for (int i = 0; i < numAttributes; i++) {
+            if (random.nextDouble() < noise) {
+                record[i] = random.nextInt(domainSize);
+            } else {
+                // Each concept relates attributes to the hidden value differently.
+                record[i] = (int) ((hiddenValue * (concept + 1L) + (long) i * (concept + 3)) % domainSize);
+            }
+        }
+        count++;
+    }
+
+    private int conceptOf(long index) {
+        switch (driftPattern) {
+            case ABRUPT:
+                return (int) (index / driftPeriod);
+            case GRADUAL:
+                int concept = (int) (index / driftPeriod);
+                double progress = (double) (index % driftPeriod) / driftPeriod;
+                return random.nextDouble() < progress ? concept + 1 : concept;
+            default:
+                return 0;
+        }
+    }
+
+    private int skewedValue() {
+        // Smaller values are more likely, as is common for real categorical data.
+        double uniform = random.nextDouble();
+        return (int) (uniform * uniform * domainSize);
+    }
+
+}
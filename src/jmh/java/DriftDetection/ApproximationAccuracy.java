@@ -0,0 +1,136 @@
+/*
+ *      DriftDetection/ApproximationAccuracy.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DriftDetection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import DataStreamReader.SyntheticCategoricalStream;
+import DataStreamReader.SyntheticCategoricalStream.DriftPattern;
+
+
+/**
+ * Compares drifts detected with approximate statistics to the ones detected
+ * with exact statistics, on a synthetic stream with abrupt drifts.
+ *
+ * For every error budget, prints the number of drifts detected, how many of
+ * them the exact detector also detected (precision), how many of the exact
+ * detections were found (recall), how many of the true drifts were detected
+ * within a block, and the time taken.
+ */
+public final class ApproximationAccuracy {
+
+    /*--------------------------------------------------------------------------*
+     *                        STATIC MEMBERS AND METHODS                        *
+     *--------------------------------------------------------------------------*/
+
+    public static void main(String[] args) {
+        int numAttributes = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int domainSize = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        double[] epsilons = {0.001, 0.005, 0.02, 0.05};
+
+        System.out.println("Attributes: " + numAttributes + ", domain size: " + domainSize +
+                ", block size: " + blockSize + ", drift every " + driftPeriod + " of " + numRecords + " records.");
+
+        for (String detector : new String[]{"CDDA", "CDCStream"}) {
+            long start = System.nanoTime();
+            List<Integer> exactDrifts = detect(detector, numAttributes, domainSize, 0);
+            report(detector + " exact", exactDrifts, exactDrifts, start);
+
+            for (double epsilon : epsilons) {
+                start = System.nanoTime();
+                List<Integer> drifts = detect(detector, numAttributes, domainSize, epsilon);
+                report(detector + " epsilon " + epsilon, drifts, exactDrifts, start);
+            }
+        }
+    }
+
+    private static final int blockSize = 2000;
+    private static final int driftPeriod = 20000;
+    private static final int numRecords = 200000;
+    private static final double delta = 0.01;
+
+    /**
+     * Positions of the drifts detected with the given error budget, or with exact
+     * statistics if `epsilon` is zero.
+     */
+    private static List<Integer> detect(String name, int numAttributes, int domainSize, double epsilon) {
+        SyntheticCategoricalStream stream =
+                new SyntheticCategoricalStream(numAttributes, domainSize, DriftPattern.ABRUPT, driftPeriod, 0);
+
+        DriftDetector detector;
+        if (name.equals("CDDA")) {
+            CDDA.DriftDetector cdda = new CDDA.DriftDetector(null, blockSize, 0.1);
+            if (epsilon > 0) {
+                cdda.setApproximation(epsilon, delta);
+            }
+            detector = cdda;
+        } else {
+            CDCStream.DriftDetector cdcStream = new CDCStream.DriftDetector(null, blockSize, 3);
+            if (epsilon > 0) {
+                cdcStream.setApproximation(epsilon, delta);
+            }
+            detector = cdcStream;
+        }
+
+        List<Integer> drifts = new ArrayList<>();
+        detector.addListener(event -> {
+            if (event.isDrift()) {
+                drifts.add(event.position());
+            }
+        });
+
+        for (int count = 0; count < numRecords; count += blockSize) {
+            detector.process(stream.nextBlock(blockSize));
+        }
+        detector.finish();
+
+        return drifts;
+    }
+
+    private static void report(String name, List<Integer> drifts, List<Integer> exactDrifts, long start) {
+        int numAgreeing = 0;
+        for (int drift : drifts) {
+            if (exactDrifts.contains(drift)) {
+                numAgreeing++;
+            }
+        }
+
+        // A true drift is found if a drift is detected at most a block after it.
+        int numTrueDrifts = 0, numFound = 0;
+        for (int trueDrift = driftPeriod; trueDrift < numRecords; trueDrift += driftPeriod) {
+            numTrueDrifts++;
+            for (int drift : drifts) {
+                if (drift >= trueDrift && drift <= trueDrift + blockSize) {
+                    numFound++;
+                    break;
+                }
+            }
+        }
+
+        System.out.printf("%-28s drifts %4d  precision %.2f  recall %.2f  true drifts found %d/%d  %6d ms%n",
+                name, drifts.size(),
+                drifts.isEmpty() ? 1.0 : (double) numAgreeing / drifts.size(),
+                exactDrifts.isEmpty() ? 1.0 : (double) numAgreeing / exactDrifts.size(),
+                numFound, numTrueDrifts, (System.nanoTime() - start) / 1000000);
+    }
+
+}
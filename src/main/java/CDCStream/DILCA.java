@@ -20,10 +20,6 @@
 
 package CDCStream;
 
-import java.util.*;
-
-import com.google.common.collect.ImmutableSet;
-
 
 class DILCA {
 
@@ -31,31 +27,87 @@ class DILCA {
      *                        STATIC MEMBERS AND METHODS                        *
      *--------------------------------------------------------------------------*/
 
+    // Fraction of the target domain above which a row of co-occurrences is handled as dense.
+    private static final int denseRowDensity = 4;
+
+    static DILCA distanceMatrixFor(DatabaseStatistics statistics,
+                                   int targetAttributeIndex) {
+        return distanceMatrixFor(statistics, SymmetricalUncertainties.of(statistics), targetAttributeIndex);
+    }
+
     // TODO: Store every retrieved attribute in a local variable.
     static DILCA distanceMatrixFor(DatabaseStatistics statistics,
-                                          int targetAttributeIndex) {
+                                   SymmetricalUncertainties symmetricalUncertainties,
+                                   int targetAttributeIndex) {
         // Find context attributes.
-        Set<Integer> contextAttributeIndexes = contextAttributeIndexesFor(statistics, targetAttributeIndex);
+        int[] contextAttributes = new int[statistics.numAttributes()];
+        int numContextAttributes = contextAttributesFor(symmetricalUncertainties, targetAttributeIndex,
+                contextAttributes, new double[statistics.numAttributes()]);
 
+        int[] targetDomain = statistics.domainOf(targetAttributeIndex);
         int targetDomainSize = statistics.domainSize(targetAttributeIndex);
 
-        // Build the distance matrix.
-        double[][] distances = new double[targetDomainSize - 1][];
-        for (int i = 0; i < distances.length; i++) {
-            distances[i] = new double[targetDomainSize - i - 1];
+        // Position of every value of the target attribute in its domain.
+        int[] positions = new int[targetDomainSize > 0 ? targetDomain[targetDomainSize - 1] + 1 : 0];
+        for (int i = 0; i < targetDomainSize; i++) {
+            positions[targetDomain[i]] = i;
         }
 
-        int[][] cooccurrences;
-        double[] valueDistances;
+        // Build the distance matrix as an upper triangle, row after row.
+        int[] rowOffsets = new int[targetDomainSize];
+        for (int i = 1; i < targetDomainSize; i++) {
+            rowOffsets[i] = rowOffsets[i - 1] + targetDomainSize - i;
+        }
+        double[] distances = new double[targetDomainSize * (targetDomainSize - 1) / 2];
+
+        // The squared difference of the co-occurrences of two target values `j` and `k` with a context value is
+        // `c[j]^2 + c[k]^2 - 2 c[j] c[k]`, so summing `c^2` of every target value and `c[j] c[k]` of every pair is
+        // enough; the products are zero unless both values co-occur with the context value. Distances hold the
+        // sums of products until they are normalized. All the sums are integers, so they are exact.
+        double[] squaredCooccurrences = new double[targetDomainSize];
+        double[] row = new double[targetDomainSize];
+        int[] rowPositions = new int[targetDomainSize];
+        int[] values = new int[targetDomainSize];
+        int[] counts = new int[targetDomainSize];
+        int numValues, position, offset;
+        double count;
+
+        int attributeIndex;
+        int[] domain;
+        for (int c = 0; c < numContextAttributes; c++) {
+            attributeIndex = contextAttributes[c];
+            domain = statistics.domainOf(attributeIndex);
+            for (int l = 0; l < statistics.domainSize(attributeIndex); l++) {
+                numValues = statistics.cooccurrencesOf(attributeIndex, domain[l], targetAttributeIndex, values, counts);
+                for (int j = 0; j < numValues; j++) {
+                    rowPositions[j] = positions[values[j]];
+                }
 
-        for (int attributeIndex : contextAttributeIndexes) {
-            cooccurrences = statistics.cooccurrencesFor(attributeIndex, targetAttributeIndex);
-            // Calculate the sum of squared differences over all the values of current context attribute.
-            for (int i = 0; i < cooccurrences.length; i++) {
-                for (int j = 0; j < targetDomainSize; j++) {
-                    for (int k = j + 1; k < targetDomainSize; k++) {
-                        double difference = cooccurrences[i][j] - cooccurrences[i][k];
-                        distances[j][k - j - 1] += difference * difference;
+                if (numValues * denseRowDensity < targetDomainSize) {
+                    // Add the products of the few values that co-occur.
+                    for (int j = 0; j < numValues; j++) {
+                        position = rowPositions[j];
+                        count = counts[j];
+                        squaredCooccurrences[position] += count * count;
+                        offset = rowOffsets[position] - position - 1;
+                        for (int k = j + 1; k < numValues; k++) {
+                            distances[offset + rowPositions[k]] += count * counts[k];
+                        }
+                    }
+                } else {
+                    // Spread the counts over the whole domain, and add every product along contiguous rows.
+                    for (int j = 0; j < numValues; j++) {
+                        row[rowPositions[j]] = counts[j];
+                    }
+                    for (int j = 0; j < numValues; j++) {
+                        position = rowPositions[j];
+                        count = row[position];
+                        squaredCooccurrences[position] += count * count;
+                        addProducts(distances, rowOffsets[position] - position - 1, count, row, position + 1,
+                                targetDomainSize);
+                    }
+                    for (int j = 0; j < numValues; j++) {
+                        row[rowPositions[j]] = 0;
                     }
                 }
             }
@@ -63,154 +115,210 @@ class DILCA {
 
         // Calculate total sum of domain sizes for all attributes.
         double totalContextDomainSizes = 0;
-        for (int attributeIndex : contextAttributeIndexes) {
-            totalContextDomainSizes += statistics.domainSize(attributeIndex);
+        for (int c = 0; c < numContextAttributes; c++) {
+            totalContextDomainSizes += statistics.domainSize(contextAttributes[c]);
+        }
+
+        // Without context, values cannot be told apart, and are all at distance zero.
+        if (0 == totalContextDomainSizes) {
+            return new DILCA(targetDomainSize, distances);
         }
 
         // Normalize sum of squared differences.
-        for  (int i = 0; i < distances.length; i++) {
-            valueDistances = distances[i];
-            for (int j = 0; j < valueDistances.length; j++) {
-                valueDistances[j] = Math.sqrt(valueDistances[j] / totalContextDomainSizes);
+        double squaredCooccurrencesOfRow;
+        for (int i = 0; i < targetDomainSize - 1; i++) {
+            squaredCooccurrencesOfRow = squaredCooccurrences[i];
+            offset = rowOffsets[i] - i - 1;
+            for (int j = i + 1; j < targetDomainSize; j++) {
+                distances[offset + j] = Math.sqrt((squaredCooccurrencesOfRow + squaredCooccurrences[j] -
+                        2 * distances[offset + j]) / totalContextDomainSizes);
             }
         }
 
-        return new DILCA(distances);
+        return new DILCA(targetDomainSize, distances);
     }
 
-    private static final double log2 = Math.log(2);
-
-    private static Set<Integer> contextAttributeIndexesFor(DatabaseStatistics statistics,
-                                                           int targetAttributeIndex) {
-        int numAttributes = statistics.numAttributes();
-        Map<Integer, Double> uncertainties = new HashMap<>(numAttributes);
-        List<Integer> indexes = new ArrayList<>(numAttributes);
+    /**
+     * Calculates `normalizedSquaredSumRoot` of the distance matrix of the target
+     * attribute without building the matrix.
+     *
+     * The squared distances of the matrix add up to the sum, over all context
+     * values, of the squared differences of their co-occurrences `c` with every
+     * pair of target values, which is `d * sum(c^2) - sum(c)^2` for a domain of
+     * `d` target values. Only the non-zero co-occurrences of every context value
+     * are visited, and the sums are exact, so the summary only differs from the
+     * one of the matrix by rounding.
+     *
+     * An attribute without context attributes, e.g. the only attribute of the
+     * statistics, has a summary of 0, like its matrix, whose values are all at
+     * distance 0.
+     */
+    static double summaryFor(DatabaseStatistics statistics,
+                             SymmetricalUncertainties symmetricalUncertainties,
+                             int targetAttributeIndex) {
+        SummaryBuffers buffers = new SummaryBuffers(statistics.numAttributes());
+        selectContext(symmetricalUncertainties, targetAttributeIndex, buffers);
+        return summaryFor(statistics, targetAttributeIndex, buffers);
+    }
 
-        // Calculate attribute relevance.
-        for (int i = 0; i < numAttributes; i++) {
-            if (i != targetAttributeIndex) {
-                indexes.add(i);
-                uncertainties.put(i, symmetricalUncertainty(statistics, targetAttributeIndex, i));
-            }
-        }
+    /**
+     * Selects the context attributes of the target attribute into its arrays in
+     * `buffers`, from which `summaryFor` computes its summary.
+     */
+    static void selectContext(SymmetricalUncertainties symmetricalUncertainties,
+                              int targetAttributeIndex,
+                              SummaryBuffers buffers) {
+        buffers.setNumContextAttributes(targetAttributeIndex, contextAttributesFor(symmetricalUncertainties,
+                targetAttributeIndex, buffers.contextAttributes(targetAttributeIndex),
+                buffers.relevances(targetAttributeIndex)));
+    }
 
-        // Sort indexes in descending order based on their corresponding symmetrical uncertainty.
-        indexes.sort((i, j) -> (int) Math.signum(uncertainties.get(j) - uncertainties.get(i)));
+    /**
+     * Calculates the summary like `summaryFor`, with the context attributes
+     * selected into `buffers` by `selectContext`, and in the other arrays of the
+     * target attribute there.
+     */
+    static double summaryFor(DatabaseStatistics statistics, int targetAttributeIndex, SummaryBuffers buffers) {
+        int[] contextAttributes = buffers.contextAttributes(targetAttributeIndex);
+        int numContextAttributes = buffers.numContextAttributes(targetAttributeIndex);
+
+        long targetDomainSize = statistics.domainSize(targetAttributeIndex);
+        buffers.ensureRowCapacity(targetAttributeIndex, (int) targetDomainSize);
+        int[] values = buffers.values(targetAttributeIndex);
+        int[] counts = buffers.counts(targetAttributeIndex);
+        int numValues, attributeIndex;
+        long count, sum, squaredSum, totalSquaredDifferences = 0;
+        double totalContextDomainSizes = 0;
 
-        // Remove redundant attributes.
-        int firstAttribute, secondAttribute;
-        for (int i = 0; i < indexes.size(); i++) {
-            firstAttribute = indexes.get(i);
-            if (-1 != firstAttribute) {
-                for (int j = i + 1; j < indexes.size(); j++) {
-                    secondAttribute = indexes.get(j);
-                    if (-1 != secondAttribute && symmetricalUncertainty(statistics, firstAttribute, secondAttribute) <=
-                            uncertainties.get(secondAttribute)) {
-                        indexes.set(j, -1);
-                    }
+        int[] domain;
+        for (int c = 0; c < numContextAttributes; c++) {
+            attributeIndex = contextAttributes[c];
+            domain = statistics.domainOf(attributeIndex);
+            for (int l = 0; l < statistics.domainSize(attributeIndex); l++) {
+                numValues = statistics.cooccurrencesOf(attributeIndex, domain[l], targetAttributeIndex, values, counts);
+                sum = squaredSum = 0;
+                for (int j = 0; j < numValues; j++) {
+                    count = counts[j];
+                    sum += count;
+                    squaredSum += count * count;
                 }
+                totalSquaredDifferences += targetDomainSize * squaredSum - sum * sum;
             }
+            totalContextDomainSizes += statistics.domainSize(attributeIndex);
         }
 
-        ImmutableSet.Builder<Integer> contextBuilder = ImmutableSet.builder();
-        for (int i : indexes) {
-            if (i != -1) {
-                contextBuilder.add(i);
-            }
+        if (0 == totalSquaredDifferences) {
+            return 0;
+        } else {
+            return (2 * Math.sqrt(totalSquaredDifferences / totalContextDomainSizes)) /
+                    ((targetDomainSize - 1) * targetDomainSize);
         }
-        return contextBuilder.build();
     }
 
-    private static double symmetricalUncertainty(DatabaseStatistics statistics,
-                                                 int targetAttributeIndex,
-                                                 int attributeIndex) {
-        if (targetAttributeIndex == attributeIndex) {
-            return 0;
+    /**
+     * Adds `factor * row[k]` to `distances[offset + k]` for every `from <= k < to`.
+     * Kept in a separate method with a plain loop over contiguous elements, so
+     * that the JIT compiles it to vector instructions.
+     */
+    private static void addProducts(double[] distances, int offset, double factor, double[] row, int from, int to) {
+        for (int k = from; k < to; k++) {
+            distances[offset + k] += factor * row[k];
         }
+    }
 
-        int[][] targetOccurrences = statistics.cooccurrencesFor(targetAttributeIndex, targetAttributeIndex);
-        int[][] attributeOccurrences = statistics.cooccurrencesFor(attributeIndex, attributeIndex);
-        int[][] cooccurrences = statistics.cooccurrencesFor(attributeIndex, targetAttributeIndex);
-
-        double probability, occurrences, attributeValueTotalOccurrences;
+    /**
+     * Copies the indexes of the context attributes of the target attribute to
+     * `contextAttributes`, in descending order of their relevance, and returns
+     * their number. Both arrays should have room for every attribute.
+     */
+    private static int contextAttributesFor(SymmetricalUncertainties symmetricalUncertainties,
+                                            int targetAttributeIndex,
+                                            int[] contextAttributes,
+                                            double[] relevances) {
+        int numAttributes = relevances.length;
+        int numIndexes = 0;
 
-        double targetEntropy = 0;
-        // Calculate target attribute's entropy.
-        double targetTotalOccurrences = 0;
-        for (int i = 0; i < targetOccurrences.length; i++) {
-            targetTotalOccurrences += targetOccurrences[i][i];
-        }
-        for (int i = 0; i < targetOccurrences.length; i++) {
-            occurrences = targetOccurrences[i][i];
-            if (0 == occurrences) {
-                continue;
+        // Calculate attribute relevance.
+        for (int i = 0; i < numAttributes; i++) {
+            if (i != targetAttributeIndex) {
+                contextAttributes[numIndexes] = i;
+                numIndexes++;
+                relevances[i] = symmetricalUncertainties.between(targetAttributeIndex, i);
             }
-            probability = occurrences / targetTotalOccurrences;
-            targetEntropy -= probability * Math.log(probability) / log2;
         }
 
-        double attributeEntropy = 0;
-        // Calculate attribute's entropy.
-        double attributeTotalOccurrences = 0;
-        for (int i = 0; i < attributeOccurrences.length; i++) {
-            attributeTotalOccurrences += attributeOccurrences[i][i];
-        }
-        for (int i = 0; i < attributeOccurrences.length; i++) {
-            occurrences = attributeOccurrences[i][i];
-            if (0 == occurrences) {
-                continue;
+        // Sort indexes in descending order of relevance, keeping the order of equally relevant attributes.
+        int index, k;
+        for (int i = 1; i < numIndexes; i++) {
+            index = contextAttributes[i];
+            for (k = i; k > 0 && relevances[contextAttributes[k - 1]] < relevances[index]; k--) {
+                contextAttributes[k] = contextAttributes[k - 1];
             }
-            probability = occurrences / attributeTotalOccurrences;
-            attributeEntropy -= probability * Math.log(probability) / log2;
-        }
-
-        // Calculate conditional entropy of target attribute with respect to the given attribute.
-        double conditionalEntropy = 0;
-        for (int i = 0; i < cooccurrences.length; i++) {
-            double currentValueEntropy = 0;
-            attributeValueTotalOccurrences = attributeOccurrences[i][i];
-            for (int j = 0; j < cooccurrences[i].length; j++) {
-                occurrences = cooccurrences[i][j];
-                if (0 == occurrences) {
-                    continue;
+            contextAttributes[k] = index;
+        }
+
+        // Remove redundant attributes.
+        int firstAttribute, secondAttribute;
+        for (int i = 0; i < numIndexes; i++) {
+            firstAttribute = contextAttributes[i];
+            if (-1 != firstAttribute) {
+                for (int j = i + 1; j < numIndexes; j++) {
+                    secondAttribute = contextAttributes[j];
+                    if (-1 != secondAttribute && symmetricalUncertainties.between(firstAttribute, secondAttribute) <=
+                            relevances[secondAttribute]) {
+                        contextAttributes[j] = -1;
+                    }
                 }
-                probability = occurrences / attributeValueTotalOccurrences;
-                currentValueEntropy -= probability * Math.log(probability) / log2;
             }
-            conditionalEntropy += (attributeValueTotalOccurrences / attributeTotalOccurrences) * currentValueEntropy;
         }
 
-        // Calculate symmetrical uncertainty.
-        if (0 == targetEntropy && 0 == attributeEntropy) {
-            return 0;
-        } else {
-            return 2 * (targetEntropy - conditionalEntropy) / (targetEntropy + attributeEntropy);
+        int numContextAttributes = 0;
+        for (int i = 0; i < numIndexes; i++) {
+            if (contextAttributes[i] != -1) {
+                contextAttributes[numContextAttributes] = contextAttributes[i];
+                numContextAttributes++;
+            }
         }
+        return numContextAttributes;
     }
 
     /*--------------------------------------------------------------------------*
      *                       INSTANCE MEMBERS AND METHODS                       *
      *--------------------------------------------------------------------------*/
 
+    /**
+     * Distance between the values at the given positions of the domain of the
+     * target attribute, i.e. `statistics.domainOf(target)`.
+     */
+    double distanceBetween(int firstPosition, int secondPosition) {
+        if (firstPosition == secondPosition) {
+            return 0;
+        }
+
+        int i = Math.min(firstPosition, secondPosition), j = Math.max(firstPosition, secondPosition);
+        return distances[i * (2 * domainSize - i - 1) / 2 + j - i - 1];
+    }
+
     double normalizedSquaredSumRoot() {
         double sum = 0;
 
         for (int i = 0; i < distances.length; i++) {
-            for (int j = 0; j < distances[i].length; j++) {
-                sum += distances[i][j] * distances[i][j];
-            }
+            sum += distances[i] * distances[i];
         }
 
         if (0 == sum) {
             return 0;
         } else {
-            return (2 * Math.sqrt(sum)) / (distances.length * (distances.length + 1));
+            return (2 * Math.sqrt(sum)) / ((domainSize - 1) * domainSize);
         }
     }
 
-    double[][] distances;
+    // Upper triangle of the distance matrix, row after row.
+    private final double[] distances;
+    private final int domainSize;
 
-    private DILCA(double[][] distances) {
+    private DILCA(int domainSize, double[] distances) {
+        this.domainSize = domainSize;
         this.distances = distances;
     }
 
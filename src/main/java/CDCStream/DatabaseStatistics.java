@@ -20,91 +20,537 @@
 
 package CDCStream;
 
-import com.google.common.collect.ImmutableList;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import DataStreamReader.CategoricalBlock;
 
 
-class DatabaseStatistics {
+/**
+ * Co-occurrence counts of attribute values over a multiset of records.
+ *
+ * Values are identified by their dictionary codes. Records can be both added and
+ * removed, so the statistics of a sliding window can be maintained without
+ * recounting the records that stay in the window.
+ *
+ * Occurrences of every attribute are kept in a separate array, while
+ * co-occurrences are only kept for pairs of distinct attributes `i < j`. Pairs
+ * whose dense table of `capacity(i) * capacity(j)` counts is not larger than
+ * the sparse threshold keep it in row-major order, laid one after another with
+ * the others in a single array. Larger pairs only keep their non-zero counts.
+ *
+ * Statistics of parts of a stream, e.g. counted by separate threads or
+ * processes, can be merged, and written and read back in a compact form.
+ */
+public final class DatabaseStatistics {
+
+    /*--------------------------------------------------------------------------*
+     *                        STATIC MEMBERS AND METHODS                        *
+     *--------------------------------------------------------------------------*/
+
+    /**
+     * Number of counts above which the co-occurrences of a pair of attributes are
+     * kept in a sparse table.
+     */
+    static final int defaultSparseThreshold = 1 << 16;
+
+    // Largest number of attributes whose pairs can all be indexed.
+    private static final int maxNumAttributes = 46340;
+
+    /**
+     * Reads statistics written by `writeTo`.
+     *
+     * @throws IOException if the input ends early or does not hold consistent
+     *                     statistics.
+     */
+    public static DatabaseStatistics readFrom(DataInput in) throws IOException {
+        int numAttributes = in.readInt();
+        int sparseThreshold = in.readInt();
+        int numRecords = in.readInt();
+        if (numAttributes <= 0 || numAttributes > maxNumAttributes) {
+            throw new IOException("Invalid number of attributes: " + numAttributes + ".");
+        }
+        if (sparseThreshold < 0 || numRecords < 0) {
+            throw new IOException("Invalid sparse threshold or number of records.");
+        }
+
+        int[] capacities = new int[numAttributes];
+        int[][] values = new int[numAttributes][], counts = new int[numAttributes][];
+        long totalCount;
+        for (int i = 0; i < numAttributes; i++) {
+            capacities[i] = in.readInt();
+            int domainSize = in.readInt();
+            if (capacities[i] < 0) {
+                throw new IOException("Invalid capacity of attribute " + i + ": " + capacities[i] + ".");
+            }
+            if (domainSize < 0 || domainSize > capacities[i] || domainSize > numRecords) {
+                throw new IOException("Invalid domain size of attribute " + i + ": " + domainSize + ".");
+            }
+
+            values[i] = new int[domainSize];
+            counts[i] = new int[domainSize];
+            totalCount = 0;
+            for (int k = 0; k < domainSize; k++) {
+                values[i][k] = in.readInt();
+                counts[i][k] = in.readInt();
+                if (values[i][k] < 0 || values[i][k] >= capacities[i] || counts[i][k] <= 0) {
+                    throw new IOException("Invalid occurrences of attribute " + i + ".");
+                }
+                totalCount += counts[i][k];
+            }
+            if (totalCount != numRecords) {
+                throw new IOException("Occurrences of attribute " + i + " do not add up to the number of records.");
+            }
+        }
+
+        DatabaseStatistics statistics = new DatabaseStatistics(numAttributes, sparseThreshold);
+        statistics.ensureCapacities(capacities);
+        for (int i = 0; i < numAttributes; i++) {
+            for (int k = 0; k < values[i].length; k++) {
+                if (statistics.occurrences[i][values[i][k]] != 0) {
+                    throw new IOException("Value " + values[i][k] + " of attribute " + i + " occurs twice.");
+                }
+                statistics.occurrences[i][values[i][k]] = counts[i][k];
+            }
+        }
+
+        int numValues, secondValue, count;
+        for (int i = 0; i < numAttributes; i++) {
+            for (int j = i + 1; j < numAttributes; j++) {
+                for (int k = 0; k < values[i].length; k++) {
+                    numValues = in.readInt();
+                    if (numValues < 0 || numValues > values[j].length) {
+                        throw new IOException("Invalid co-occurrences of attributes " + i + " and " + j + ".");
+                    }
+                    for (int l = 0; l < numValues; l++) {
+                        secondValue = in.readInt();
+                        count = in.readInt();
+                        if (secondValue < 0 || secondValue >= capacities[j] || count <= 0 ||
+                                count > counts[i][k] || count > statistics.occurrences[j][secondValue]) {
+                            throw new IOException("Invalid co-occurrences of attributes " + i + " and " + j + ".");
+                        }
+                        statistics.addCooccurrences(i, values[i][k], j, secondValue, count);
+                    }
+                }
+            }
+        }
+        statistics.numRecords = numRecords;
+
+        statistics.findDomains();
+        return statistics;
+    }
+
+    private static int codeOf(int[][] codes, int attributeIndex, int value) {
+        return codes == null ? value : codes[attributeIndex][value];
+    }
 
     /*--------------------------------------------------------------------------*
      *                       INSTANCE MEMBERS AND METHODS                       *
      *--------------------------------------------------------------------------*/
 
-    DatabaseStatistics(ImmutableList<ImmutableList<String>> database) {
+    public DatabaseStatistics(int numAttributes) {
+        this(numAttributes, defaultSparseThreshold);
+    }
+
+    DatabaseStatistics(int numAttributes, int sparseThreshold) {
+        this.numAttributes = numAttributes;
+        this.sparseThreshold = sparseThreshold;
+        this.capacities = new int[numAttributes];
+        this.domains = new int[numAttributes][];
+        this.domainSizes = new int[numAttributes];
+        this.occurrences = new int[numAttributes][];
+        this.offsets = new int[numAttributes * numAttributes];
+        this.sparseCooccurrences = new SparseCooccurrences[numAttributes * numAttributes];
+        this.cooccurrences = new int[0];
+        this.minCapacities = new int[numAttributes];
+        this.blockColumns = new int[numAttributes][];
+
+        for (int i = 0; i < numAttributes; i++) {
+            domains[i] = new int[0];
+            occurrences[i] = new int[0];
+        }
+    }
+
+    DatabaseStatistics(CategoricalBlock database) {
+        this(database.numAttributes());
+
         if (database.size() == 0) {
             throw new IllegalArgumentException("Database cannot be empty.");
         }
 
-        this.numAttributes = database.get(0).size();
+        add(database);
+    }
+
+    public void add(CategoricalBlock block) {
+        update(block, 1);
+    }
+
+    void remove(CategoricalBlock block) {
+        update(block, -1);
+    }
+
+    /**
+     * Adds the counts of other statistics of records whose values have the same
+     * codes, so that statistics of a large block can be built from the
+     * statistics of its parts without counting its records again. Merging is
+     * associative and commutative, as it only adds counts.
+     */
+    public void merge(DatabaseStatistics statistics) {
+        merge(statistics, null);
+    }
+
+    /**
+     * Adds the counts of other statistics whose values are encoded by another
+     * dictionary, where `codes[i][value]` is the code in this dictionary of a
+     * value of the `i`-th attribute, e.g. as returned by
+     * `CategoricalDictionary.encodeAll`.
+     */
+    public void merge(DatabaseStatistics statistics, int[][] codes) {
+        if (statistics.numAttributes != numAttributes) {
+            throw new IllegalArgumentException("Number of attributes should match.");
+        }
+        if (codes != null && codes.length != numAttributes) {
+            throw new IllegalArgumentException("Codes should be given for every attribute.");
+        }
 
-        this.attributeDomains = new ArrayList<>(numAttributes);
+        int[] otherDomain;
+        Arrays.fill(minCapacities, 0);
         for (int i = 0; i < numAttributes; i++) {
-            attributeDomains.add(new HashMap<>());
+            otherDomain = statistics.domains[i];
+            for (int k = 0; k < statistics.domainSizes[i]; k++) {
+                minCapacities[i] = Math.max(minCapacities[i], codeOf(codes, i, otherDomain[k]) + 1);
+            }
         }
+        ensureCapacities(minCapacities);
 
-        // Find domain of all attributes.
-        int[] nextIndex = new int[numAttributes];
-        for (ImmutableList<String> record : database) {
-            for (int i = 0; i < numAttributes; i++) {
-                String value = record.get(i);
-                if (!attributeDomains.get(i).containsKey(value)) {
-                    attributeDomains.get(i).put(value, nextIndex[i]);
-                    nextIndex[i]++;
-                }
+        int[] otherOccurrences;
+        for (int i = 0; i < numAttributes; i++) {
+            otherOccurrences = statistics.occurrences[i];
+            otherDomain = statistics.domains[i];
+            for (int k = 0; k < statistics.domainSizes[i]; k++) {
+                occurrences[i][codeOf(codes, i, otherDomain[k])] += otherOccurrences[otherDomain[k]];
             }
         }
 
-        // Initialize co-occurrences data structure with zero.
-        int firstDomainSize, secondDomainSize;
+        // Only the non-zero co-occurrences of the other statistics are visited.
+        int maxDomainSize = 0;
+        for (int i = 0; i < numAttributes; i++) {
+            maxDomainSize = Math.max(maxDomainSize, statistics.domainSize(i));
+        }
+        if (rowValues.length < maxDomainSize) {
+            rowValues = new int[Math.max(maxDomainSize, 2 * rowValues.length)];
+            rowCounts = new int[rowValues.length];
+        }
+        int[] values = rowValues, counts = rowCounts;
 
-        cooccurrences = new int[numAttributes][][][];
+        int numValues, firstValue;
         for (int i = 0; i < numAttributes; i++) {
-            cooccurrences[i] = new int[numAttributes][][];
-            firstDomainSize = attributeDomains.get(i).size();
+            otherDomain = statistics.domains[i];
+            for (int j = i + 1; j < numAttributes; j++) {
+                for (int l = 0; l < statistics.domainSizes[i]; l++) {
+                    firstValue = otherDomain[l];
+                    numValues = statistics.cooccurrencesOf(i, firstValue, j, values, counts);
+                    for (int k = 0; k < numValues; k++) {
+                        addCooccurrences(i, codeOf(codes, i, firstValue), j, codeOf(codes, j, values[k]), counts[k]);
+                    }
+                }
+            }
+        }
+        numRecords += statistics.numRecords;
 
-            for (int j = 0; j < numAttributes; j++) {
-                cooccurrences[i][j] = new int[firstDomainSize][];
-                secondDomainSize = attributeDomains.get(j).size();
+        findDomains();
+    }
 
-                for (int k = 0; k < firstDomainSize; k++) {
-                    cooccurrences[i][j][k] = new int[secondDomainSize];
-                }
+    /**
+     * Writes the number of records, the capacity of every attribute and the
+     * non-zero counts, so that statistics can be counted in another process and
+     * merged later.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(numAttributes);
+        out.writeInt(sparseThreshold);
+        out.writeInt(numRecords);
+
+        for (int i = 0; i < numAttributes; i++) {
+            out.writeInt(capacities[i]);
+            out.writeInt(domainSizes[i]);
+            for (int k = 0; k < domainSizes[i]; k++) {
+                out.writeInt(domains[i][k]);
+                out.writeInt(occurrences[i][domains[i][k]]);
             }
         }
 
-        // Count co-occurrences.
-        int firstIndex, secondIndex;
+        // Rows of co-occurrences of every pair, one for every value of the first attribute.
+        int maxDomainSize = 0;
+        for (int i = 0; i < numAttributes; i++) {
+            maxDomainSize = Math.max(maxDomainSize, domainSizes[i]);
+        }
+        int[] values = new int[maxDomainSize], counts = new int[maxDomainSize];
 
-        for (ImmutableList<String> record : database) {
-            for (int i = 0; i < numAttributes; i++) {
-                for (int j = 0; j < numAttributes; j++) {
-                    firstIndex = attributeDomains.get(i).get(record.get(i));
-                    secondIndex = attributeDomains.get(j).get(record.get(j));
-                    this.cooccurrences[i][j][firstIndex][secondIndex]++;
+        int numValues;
+        for (int i = 0; i < numAttributes; i++) {
+            for (int j = i + 1; j < numAttributes; j++) {
+                for (int k = 0; k < domainSizes[i]; k++) {
+                    numValues = cooccurrencesOf(i, domains[i][k], j, values, counts);
+                    out.writeInt(numValues);
+                    for (int l = 0; l < numValues; l++) {
+                        out.writeInt(values[l]);
+                        out.writeInt(counts[l]);
+                    }
                 }
             }
         }
     }
 
-    int[][] cooccurrencesFor(int lesserAttributeIndex, int greaterAttributeIndex) {
-        return cooccurrences[lesserAttributeIndex][greaterAttributeIndex];
+    void clear() {
+        for (int i = 0; i < numAttributes; i++) {
+            Arrays.fill(occurrences[i], 0);
+        }
+        Arrays.fill(domainSizes, 0);
+        Arrays.fill(cooccurrences, 0);
+        for (SparseCooccurrences table : sparseCooccurrences) {
+            if (table != null) {
+                table.clear();
+            }
+        }
+        numRecords = 0;
+    }
+
+    /**
+     * Occurrences of every value of the given attribute, indexed by value code.
+     * The returned array must not be modified.
+     */
+    int[] occurrencesFor(int attributeIndex) {
+        return occurrences[attributeIndex];
+    }
+
+    /**
+     * Copies the values of the second attribute that co-occur with `firstValue`
+     * of the first attribute, in ascending order, along with their
+     * co-occurrences, and returns their number. Both arrays should have room for
+     * `domainSize(secondAttributeIndex)` values.
+     */
+    int cooccurrencesOf(int firstAttributeIndex, int firstValue, int secondAttributeIndex,
+                        int[] values, int[] counts) {
+        boolean ordered = firstAttributeIndex < secondAttributeIndex;
+        int pairIndex = ordered ? firstAttributeIndex * numAttributes + secondAttributeIndex :
+                secondAttributeIndex * numAttributes + firstAttributeIndex;
+
+        if (offsets[pairIndex] == -1) {
+            return sparseCooccurrences[pairIndex].row(ordered, firstValue, values, counts);
+        }
+
+        // Scan the row, or the column, of the dense table.
+        int index, stride;
+        if (ordered) {
+            index = offsets[pairIndex] + firstValue * capacities[secondAttributeIndex];
+            stride = 1;
+        } else {
+            index = offsets[pairIndex] + firstValue;
+            stride = capacities[firstAttributeIndex];
+        }
+
+        int[] domain = domains[secondAttributeIndex];
+        int size = 0, value, count;
+        for (int k = 0; k < domainSizes[secondAttributeIndex]; k++) {
+            value = domain[k];
+            count = cooccurrences[index + value * stride];
+            if (count != 0) {
+                values[size] = value;
+                counts[size] = count;
+                size++;
+            }
+        }
+        return size;
     }
 
-    int numAttributes() {
+    public int numAttributes() {
         return numAttributes;
     }
 
+    public int numRecords() {
+        return numRecords;
+    }
+
+    /**
+     * Number of distinct values of the given attribute that occur at least once.
+     */
     int domainSize(int attributeIndex) {
-        return attributeDomains.get(attributeIndex).size();
+        return domainSizes[attributeIndex];
+    }
+
+    /**
+     * Codes of the values of the given attribute that occur at least once, in
+     * ascending order, in the first `domainSize(attributeIndex)` elements of the
+     * returned array. The array must not be modified, and is reused when the
+     * statistics change.
+     */
+    int[] domainOf(int attributeIndex) {
+        return domains[attributeIndex];
     }
 
     private final int numAttributes;
-    private final List<Map<String, Integer>> attributeDomains;
-    private final int[][][][] cooccurrences;
+    private final int sparseThreshold;
+    private final int[] capacities;
+    // Codes of the values of every attribute that occur, in their first `domainSizes` elements.
+    private final int[][] domains;
+    private final int[] domainSizes;
+    private final int[][] occurrences;
+    // Offsets of dense tables in `cooccurrences`, or -1 for pairs that have a sparse table.
+    private final int[] offsets;
+    private final SparseCooccurrences[] sparseCooccurrences;
+    private int[] cooccurrences;
+    private int numRecords = 0;
+    // Arrays reused by every update and merge, so that they allocate nothing unless domains grow.
+    private final int[] minCapacities;
+    private final int[][] blockColumns;
+    private int[] rowValues = new int[0], rowCounts = new int[0];
 
-}
+    private void update(CategoricalBlock block, int delta) {
+        if (block.numAttributes() != numAttributes) {
+            throw new IllegalArgumentException("Number of attributes should match.");
+        }
+
+        for (int i = 0; i < numAttributes; i++) {
+            minCapacities[i] = block.domainSize(i);
+        }
+        ensureCapacities(minCapacities);
+
+        int[][] columns = blockColumns;
+        for (int i = 0; i < numAttributes; i++) {
+            columns[i] = block.column(i);
+        }
+
+        // Count occurrences and co-occurrences.
+        int size = block.size();
+        int firstValue, offset;
+
+        for (int r = 0; r < size; r++) {
+            for (int i = 0; i < numAttributes; i++) {
+                firstValue = columns[i][r];
+                occurrences[i][firstValue] += delta;
+                for (int j = i + 1; j < numAttributes; j++) {
+                    offset = offsets[i * numAttributes + j];
+                    if (offset != -1) {
+                        cooccurrences[offset + firstValue * capacities[j] + columns[j][r]] += delta;
+                    } else {
+                        sparseCooccurrences[i * numAttributes + j].add(firstValue, columns[j][r], delta);
+                    }
+                }
+            }
+        }
+        numRecords += delta * size;
+        Arrays.fill(columns, null);
 
+        findDomains();
+    }
+
+    private void addCooccurrences(int firstAttributeIndex, int firstValue,
+                                  int secondAttributeIndex, int secondValue, int count) {
+        int pairIndex = firstAttributeIndex * numAttributes + secondAttributeIndex;
+        int offset = offsets[pairIndex];
+        if (offset != -1) {
+            cooccurrences[offset + firstValue * capacities[secondAttributeIndex] + secondValue] += count;
+        } else {
+            sparseCooccurrences[pairIndex].add(firstValue, secondValue, count);
+        }
+    }
+
+    /**
+     * Finds values that occur in the remaining records.
+     */
+    private void findDomains() {
+        int[] attributeOccurrences, domain;
+        int domainSize;
+
+        for (int i = 0; i < numAttributes; i++) {
+            if (domains[i].length < capacities[i]) {
+                domains[i] = new int[capacities[i]];
+            }
+            attributeOccurrences = occurrences[i];
+            domain = domains[i];
+            domainSize = 0;
+            for (int value = 0; value < capacities[i]; value++) {
+                if (attributeOccurrences[value] > 0) {
+                    domain[domainSize] = value;
+                    domainSize++;
+                }
+            }
+            domainSizes[i] = domainSize;
+        }
+    }
+
+    /**
+     * Makes room for counting values with codes less than the given domain
+     * sizes.
+     */
+    private void ensureCapacities(int[] domainSizes) {
+        int[] newCapacities = null;
+        for (int i = 0; i < numAttributes; i++) {
+            if (capacities[i] < domainSizes[i]) {
+                if (newCapacities == null) {
+                    newCapacities = capacities.clone();
+                }
+                newCapacities[i] = Math.max(domainSizes[i], 2 * capacities[i]);
+                occurrences[i] = Arrays.copyOf(occurrences[i], newCapacities[i]);
+            }
+        }
+
+        if (newCapacities == null) {
+            return;
+        }
+
+        // Lay out the dense tables again, and move the ones that have grown too large to sparse tables.
+        int[] newOffsets = new int[offsets.length];
+        long totalSize = 0, tableSize;
+        int pairIndex;
+        for (int i = 0; i < numAttributes; i++) {
+            for (int j = i + 1; j < numAttributes; j++) {
+                pairIndex = i * numAttributes + j;
+                tableSize = (long) newCapacities[i] * newCapacities[j];
+                if (offsets[pairIndex] == -1 || tableSize > sparseThreshold) {
+                    newOffsets[pairIndex] = -1;
+                } else {
+                    newOffsets[pairIndex] = (int) totalSize;
+                    totalSize += tableSize;
+                }
+            }
+        }
+        if (totalSize > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Domains are too large to store their co-occurrences.");
+        }
+
+        // Copy the existing counts to their new place.
+        int[] newCooccurrences = new int[(int) totalSize];
+        int count;
+        for (int i = 0; i < numAttributes; i++) {
+            for (int j = i + 1; j < numAttributes; j++) {
+                pairIndex = i * numAttributes + j;
+                if (newOffsets[pairIndex] != -1) {
+                    for (int k = 0; k < capacities[i]; k++) {
+                        System.arraycopy(cooccurrences, offsets[pairIndex] + k * capacities[j],
+                                newCooccurrences, newOffsets[pairIndex] + k * newCapacities[j],
+                                capacities[j]);
+                    }
+                } else if (offsets[pairIndex] != -1) {
+                    sparseCooccurrences[pairIndex] = new SparseCooccurrences();
+                    for (int k = 0; k < capacities[i]; k++) {
+                        for (int l = 0; l < capacities[j]; l++) {
+                            count = cooccurrences[offsets[pairIndex] + k * capacities[j] + l];
+                            if (count != 0) {
+                                sparseCooccurrences[pairIndex].add(k, l, count);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        System.arraycopy(newOffsets, 0, offsets, 0, offsets.length);
+        System.arraycopy(newCapacities, 0, capacities, 0, numAttributes);
+        cooccurrences = newCooccurrences;
+    }
+
+}
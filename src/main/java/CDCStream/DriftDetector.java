@@ -20,123 +20,668 @@
 
 package CDCStream;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import com.google.common.collect.ImmutableList;
+import DataStreamReader.BlockPipeline;
+import DataStreamReader.CategoricalBlock;
+import DataStreamReader.CategoricalStreamReader;
+import DriftDetection.AdaptiveBlockSize;
+import DriftDetection.BatchDriftDetector;
+import DriftDetection.CountMinSketch;
+import DriftDetection.DriftEvent;
+import DriftDetection.DriftListener;
+import DriftDetection.Metrics;
 
-import DataStreamReader.CategoricalRecordStreamReader;
 
-
-public class DriftDetector {
+public class DriftDetector implements BatchDriftDetector {
 
     /*--------------------------------------------------------------------------*
      *                       INSTANCE MEMBERS AND METHODS                       *
      *--------------------------------------------------------------------------*/
 
-    public DriftDetector(CategoricalRecordStreamReader stream,
+    public DriftDetector(CategoricalStreamReader stream,
                          int blockSize,
                          double driftCoefficient) {
+        this(stream, blockSize, blockSize, driftCoefficient);
+    }
+
+    /**
+     * Creates a detector that summarizes a window of `windowSize` records, which
+     * advances `stepSize` records at a time. Window size should be a multiple of
+     * step size.
+     */
+    public DriftDetector(CategoricalStreamReader stream,
+                         int windowSize,
+                         int stepSize,
+                         double driftCoefficient) {
+        if (stepSize <= 0 || windowSize % stepSize != 0) {
+            throw new IllegalArgumentException("Window size should be a positive multiple of step size.");
+        }
+
         this.stream = stream;
-        this.blockSize = blockSize;
+        this.stepSize = stepSize;
+        this.stepsPerWindow = windowSize / stepSize;
         this.driftCoefficient = driftCoefficient;
     }
 
-    public void run() {
-        double blockSummary;
-        double absoluteDifference, threshold;
-        double mean = 0;
-        double standardDeviation = 0, maxStandardDeviation = Double.MIN_VALUE, minStandardDeviation = Double.MAX_VALUE;
+    /**
+     * Computes the distance matrices of different attributes in parallel using
+     * the given executor, e.g. `ForkJoinPool.commonPool()`. Passing `null` makes
+     * the detector compute them sequentially, which is the default. The executor
+     * is not shut down by the detector.
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Makes the detector read up to `capacity` steps ahead on a separate thread
+     * while it processes the current window. Zero, the default, makes the
+     * detector read steps on its own thread only when they are needed.
+     */
+    public void setPipelineCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity should not be negative.");
+        }
+        this.pipelineCapacity = capacity;
+    }
 
-        ImmutableList<ImmutableList<String>> block;
-        List<Double> summaries = new ArrayList<>();
+    /**
+     * Makes the detector keep co-occurrences of a pair of attributes only for the
+     * pairs of values that occur together, once a table of all their pairs of
+     * values would hold more than `numCounts` counts. Defaults to 65536.
+     */
+    public void setSparseThreshold(int numCounts) {
+        if (numCounts < 0) {
+            throw new IllegalArgumentException("Threshold should not be negative.");
+        }
+        this.sparseThreshold = numCounts;
+    }
 
-        int lastCount = 0, currentCount = 0;
-        try {
-            System.out.println("Found concepts:");
+    /**
+     * Makes the detector summarize windows from co-occurrences counted in the
+     * rows of a count-min sketch with the given error budget, instead of exactly,
+     * so that the memory taken by the counts does not depend on the domains of
+     * the attributes.
+     *
+     * Every row of the sketch maps the values of each attribute to `width`
+     * buckets, and co-occurrences of buckets are counted as co-occurrences of
+     * values. A bucket counts its values together with the values that collide
+     * with them, and overestimates the count of a pair of values by more than
+     * `epsilon` times the number of records with probability at most `1 / e`.
+     * The summary of a window is the median of the summaries of all rows, to
+     * make up for rows in which heavy values collide. Unlike counts, summaries
+     * have no closed-form bound; `ApproximationAccuracy` in the benchmarks
+     * measures how detections change. Should be called before any step is
+     * processed.
+     */
+    public void setApproximation(double epsilon, double delta) {
+        this.sketch = CountMinSketch.withErrorBudget(epsilon, delta, 0);
+    }
+
+    /**
+     * Makes the detector compare every window only with the `size` most recent
+     * windows of the current concept, instead of all of them.
+     */
+    public void setBoundedHistory(int size) {
+        this.summaries = SummaryStatistics.bounded(size);
+    }
+
+    /**
+     * Makes the detector compare every window with all the windows of the current
+     * concept, with the weight of a window multiplied by `decay` every time the
+     * window advances.
+     */
+    public void setDecayedHistory(double decay) {
+        this.summaries = SummaryStatistics.decayed(decay);
+    }
+
+    /**
+     * Makes the detector read steps of the size chosen by the given policy,
+     * instead of the step size it was constructed with, so that a window is made
+     * of the given number of steps of possibly different sizes. Summaries of
+     * windows grow with their number of records, so they are divided by it to
+     * compare windows of different sizes. Replaces any previous policy. Should
+     * be called before any step is processed.
+     */
+    public void setAdaptiveBlockSize(AdaptiveBlockSize adaptiveBlockSize) {
+        if (adaptiveBlockSize == null) {
+            throw new IllegalArgumentException("Policy should not be null.");
+        }
+
+        // The previous policy stops being notified of events.
+        if (this.adaptiveBlockSize != null) {
+            listeners.remove(this.adaptiveBlockSize);
+        }
+        this.adaptiveBlockSize = adaptiveBlockSize;
+        listeners.add(adaptiveBlockSize);
+    }
+
+    @Override
+    public void addListener(DriftListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+        if (stream != null) {
+            stream.setMetrics(metrics);
+        }
+    }
+
+    /**
+     * Advances the window by the given step, and compares the summary of the new
+     * window with the summaries of the previous windows of the current concept.
+     * The score of a window is the absolute difference of its summary and their
+     * mean, and its threshold is their standard deviation times the drift
+     * coefficient.
+     */
+    @Override
+    public void process(CategoricalBlock step) {
+        long allocated = metrics.allocatedBytes();
+        long start = metrics.now();
+        slideWindow(step);
+        metrics.time(Metrics.statisticsTime, metrics.now() - start);
+
+        DriftEvent event = null;
+        if (window.size() == stepsPerWindow) {
+            event = decide(summarizeWindow(statistics, sketchedStatistics, uncertainties, buffers),
+                    step.offset() + step.size());
+        }
+        metrics.gauge(Metrics.blockSize, step.size());
+        metrics.gauge(Metrics.allocatedBytesPerBlock, metrics.allocatedBytes() - allocated);
+
+        if (event != null) {
+            notifyListeners(event);
+        }
+    }
+
+    /**
+     * Steps are measured by the summary of the window that ends with them.
+     */
+    @Override
+    public int blocksPerMeasurement() {
+        return stepsPerWindow;
+    }
+
+    /**
+     * Summarizes the window made of the given steps from statistics of its own,
+     * which are the same as the ones the detector updates as the window slides.
+     */
+    @Override
+    public double measure(List<CategoricalBlock> steps) {
+        if (steps.size() < stepsPerWindow) {
+            return Double.NaN;
+        }
+
+        List<CategoricalBlock> windowSteps = steps.subList(steps.size() - stepsPerWindow, steps.size());
+        int numAttributes = windowSteps.get(0).numAttributes();
 
-            for (int i = 0; i < 2; i++) {
-                block = stream.head(blockSize);
-                stream.discard(block.size());
+        if (sketch == null) {
+            DatabaseStatistics windowStatistics = new DatabaseStatistics(numAttributes, sparseThreshold);
+            for (CategoricalBlock step : windowSteps) {
+                windowStatistics.add(step);
+            }
+            return summarizeWindow(windowStatistics, null, new SymmetricalUncertainties(numAttributes),
+                    new SummaryBuffers(numAttributes));
+        }
 
-                summaries.add(summaryOf(block));
+        DatabaseStatistics[] rowStatistics = new DatabaseStatistics[sketch.depth()];
+        for (int row = 0; row < sketch.depth(); row++) {
+            rowStatistics[row] = new DatabaseStatistics(numAttributes, sparseThreshold);
+            for (CategoricalBlock step : windowSteps) {
+                rowStatistics[row].add(bucketsOf(step, row));
             }
+        }
+        return summarizeWindow(null, rowStatistics, new SymmetricalUncertainties(numAttributes),
+                new SummaryBuffers(numAttributes));
+    }
+
+    @Override
+    public void process(CategoricalBlock step, double windowSummary) {
+        metrics.gauge(Metrics.blockSize, step.size());
+        process(step.offset() + step.size(), windowSummary);
+    }
+
+    @Override
+    public void finish() {
+        notifyListeners(DriftEvent.endOfStream(conceptStart, position));
+    }
+
+    @Override
+    public int nextBlockSize() {
+        return adaptiveBlockSize != null ? adaptiveBlockSize.size() : stepSize;
+    }
+
+    @Override
+    public boolean step() {
+        CategoricalBlock step;
+        long start = System.nanoTime();
+        try {
+            step = nextStep(null);
+        } catch (NoSuchElementException e) {
+            finish();
+            return false;
+        }
+
+        long read = System.nanoTime();
+        process(step);
+        adaptStepSize(null, step, read - start, System.nanoTime() - read);
+        return true;
+    }
+
+    @Override
+    public void checkpoint(DataOutput out) throws IOException {
+        out.writeInt(stepSize);
+        out.writeInt(stepsPerWindow);
+        out.writeInt(conceptStart);
+        out.writeInt(position);
+        out.writeInt(numWindows);
+        out.writeDouble(mean);
+        out.writeDouble(maxStandardDeviation);
+        out.writeDouble(minStandardDeviation);
+        summaries.writeTo(out);
+
+        // Statistics are rebuilt from the steps of the window, which are needed to slide it anyway.
+        out.writeInt(window.size());
+        for (CategoricalBlock step : window) {
+            step.writeTo(out);
+        }
+    }
 
+    @Override
+    public void restore(DataInput in) throws IOException {
+        if (in.readInt() != stepSize || in.readInt() != stepsPerWindow) {
+            throw new IllegalArgumentException("Checkpoint was written by a detector with a different window.");
+        }
+
+        conceptStart = in.readInt();
+        position = in.readInt();
+        numWindows = in.readInt();
+        mean = in.readDouble();
+        maxStandardDeviation = in.readDouble();
+        minStandardDeviation = in.readDouble();
+        summaries = SummaryStatistics.readFrom(in);
+
+        window.clear();
+        statistics = null;
+        sketchedStatistics = null;
+        int windowSize = in.readInt();
+        for (int i = 0; i < windowSize; i++) {
+            slideWindow(CategoricalBlock.readFrom(in));
+        }
+    }
+
+    @Override
+    public void run() {
+        try (BlockPipeline pipeline = pipelineCapacity > 0 ?
+                new BlockPipeline(stream, nextBlockSize(), pipelineCapacity) : null) {
+            CategoricalBlock step;
+            long start, read;
             while (true) {
-                currentCount = stream.countSoFar();
-                block = stream.head(blockSize);
-                stream.discard(block.size());
-
-                blockSummary = summaryOf(block);
-
-                if (summaries.size() > 1) {
-                    // Calculate the mean.
-                    mean = 0;
-                    for (double summary : summaries) {
-                        mean += summary;
-                    }
-                    mean /= summaries.size();
-
-                    // Calculate the standard deviation.
-                    standardDeviation = 0;
-                    for (double summary : summaries) {
-                        standardDeviation += Math.pow(summary - mean, 2);
-                    }
-                    standardDeviation = Math.sqrt(standardDeviation / summaries.size());
-
-                    // Update `maxStandardDeviation` and `minStandardDeviation` if needed.
-                    if (maxStandardDeviation < standardDeviation) {
-                        maxStandardDeviation = standardDeviation;
-                    }
-                    if (minStandardDeviation > standardDeviation) {
-                        minStandardDeviation = standardDeviation;
-                    }
-                } else if (summaries.size() == 1) {
-                    mean = summaries.get(0);
-                    standardDeviation = (minStandardDeviation + maxStandardDeviation) / 2;
-                }
-
-                absoluteDifference = Math.abs(blockSummary - mean);
-                threshold = driftCoefficient * standardDeviation;
-                if (absoluteDifference >= threshold) {
-                    System.out.println(lastCount + "-" + currentCount);
-                    lastCount = currentCount + 1;
-                    summaries.clear();
-                }
-
-                summaries.add(blockSummary);
+                start = System.nanoTime();
+                step = nextStep(pipeline);
+                read = System.nanoTime();
+                process(step);
+                adaptStepSize(pipeline, step, read - start, System.nanoTime() - read);
             }
         } catch (NoSuchElementException e) {
-            if (currentCount >= lastCount) {
-                System.out.println(lastCount + "-" + currentCount);
-            }
-            System.out.println("Done.");
+            finish();
         }
     }
 
-    private final CategoricalRecordStreamReader stream;
-    private final int blockSize;
+    private final CategoricalStreamReader stream;
+    private final int stepSize;
+    private final int stepsPerWindow;
     private final double driftCoefficient;
 
-    private double summaryOf(ImmutableList<ImmutableList<String>> block) {
-        if (block.size() == 0) {
-            throw new IllegalArgumentException("Block should not be empty.");
+    private final Deque<CategoricalBlock> window = new ArrayDeque<>();
+    private DatabaseStatistics statistics;
+    // Reused to summarize every window, so that summarizing allocates nothing once the domains stop growing.
+    private SymmetricalUncertainties uncertainties;
+    private SummaryBuffers buffers;
+
+    // Only the hash functions of the sketch are used, to map values to buckets; the co-occurrences of buckets
+    // counted for each of its rows are the counters of that row.
+    private CountMinSketch sketch = null;
+    private DatabaseStatistics[] sketchedStatistics;
+    private ExecutorService executor = null;
+    private int pipelineCapacity = 0;
+    private AdaptiveBlockSize adaptiveBlockSize = null;
+    private int sparseThreshold = DatabaseStatistics.defaultSparseThreshold;
+    private final List<DriftListener> listeners = new ArrayList<>();
+    private Metrics metrics = Metrics.none;
+
+    // Summaries of the windows of the current concept.
+    private SummaryStatistics summaries = SummaryStatistics.unbounded();
+    private double mean = 0;
+    private double maxStandardDeviation = Double.MIN_VALUE, minStandardDeviation = Double.MAX_VALUE;
+    private int numWindows = 0;
+
+    // First record of the current concept, and number of records in the windows compared so far.
+    private int conceptStart = 0, position = 0;
+
+    private CategoricalBlock nextStep(BlockPipeline pipeline) throws NoSuchElementException {
+        if (pipeline != null) {
+            return pipeline.next();
+        }
+
+        CategoricalBlock step = stream.block(nextBlockSize());
+        stream.discard(step.size());
+        return step;
+    }
+
+    private void adaptStepSize(BlockPipeline pipeline, CategoricalBlock step, long arrivalTime, long processingTime) {
+        if (adaptiveBlockSize == null) {
+            return;
+        }
+
+        adaptiveBlockSize.update(step.size(), arrivalTime, processingTime);
+        if (pipeline != null) {
+            pipeline.setBlockSize(adaptiveBlockSize.size());
+        }
+    }
+
+    /**
+     * Processes the window that ends before the record at `windowEnd` given its
+     * summary, for windows whose statistics are maintained elsewhere.
+     */
+    void process(int windowEnd, double windowSummary) {
+        DriftEvent event = Double.isNaN(windowSummary) ? null : decide(windowSummary, windowEnd);
+        if (event != null) {
+            notifyListeners(event);
+        }
+    }
+
+    /**
+     * Compares the summary of the window that ends before the record at
+     * `windowEnd` with the summaries of the previous windows, or returns `null`
+     * while the windows only make up the history of the first concept.
+     */
+    private DriftEvent decide(double windowSummary, int windowEnd) {
+        long start = metrics.now();
+
+        // The first two windows only make up the history of the first concept.
+        if (numWindows < 2) {
+            numWindows++;
+            summaries.add(windowSummary);
+            if (numWindows == 2) {
+                position = windowEnd;
+            }
+            return null;
+        }
+
+        double standardDeviation;
+        if (summaries.count() > 1) {
+            mean = summaries.mean();
+            standardDeviation = summaries.standardDeviation();
+
+            // Update `maxStandardDeviation` and `minStandardDeviation` if needed.
+            if (maxStandardDeviation < standardDeviation) {
+                maxStandardDeviation = standardDeviation;
+            }
+            if (minStandardDeviation > standardDeviation) {
+                minStandardDeviation = standardDeviation;
+            }
+        } else {
+            mean = summaries.mean();
+            standardDeviation = (minStandardDeviation + maxStandardDeviation) / 2;
+        }
+
+        DriftEvent event = DriftEvent.block(conceptStart, position, Math.abs(windowSummary - mean),
+                driftCoefficient * standardDeviation);
+        if (event.isDrift()) {
+            conceptStart = position + 1;
+            summaries.clear();
+        }
+        summaries.add(windowSummary);
+        position = windowEnd;
+
+        metrics.time(Metrics.decisionTime, metrics.now() - start);
+        return event;
+    }
+
+    private void slideWindow(CategoricalBlock step) {
+        if (sketch == null && statistics == null) {
+            statistics = new DatabaseStatistics(step.numAttributes(), sparseThreshold);
+        } else if (sketch != null && sketchedStatistics == null) {
+            sketchedStatistics = new DatabaseStatistics[sketch.depth()];
+            for (int row = 0; row < sketch.depth(); row++) {
+                sketchedStatistics[row] = new DatabaseStatistics(step.numAttributes(), sparseThreshold);
+            }
+        }
+        if (buffers == null) {
+            uncertainties = new SymmetricalUncertainties(step.numAttributes());
+            buffers = new SummaryBuffers(step.numAttributes());
+        }
+
+        // Drop the oldest step, unless the window is still filling up.
+        if (window.size() == stepsPerWindow) {
+            CategoricalBlock oldestStep = window.removeFirst();
+            if (window.isEmpty()) {
+                clearStatistics();
+            } else {
+                updateStatistics(oldestStep, false);
+            }
+        }
+
+        window.addLast(step);
+        updateStatistics(step, true);
+    }
+
+    private void updateStatistics(CategoricalBlock step, boolean add) {
+        if (sketch == null) {
+            if (add) {
+                statistics.add(step);
+            } else {
+                statistics.remove(step);
+            }
+            return;
+        }
+
+        CategoricalBlock sketchedStep;
+        for (int row = 0; row < sketch.depth(); row++) {
+            sketchedStep = bucketsOf(step, row);
+            if (add) {
+                sketchedStatistics[row].add(sketchedStep);
+            } else {
+                sketchedStatistics[row].remove(sketchedStep);
+            }
+        }
+    }
+
+    private void clearStatistics() {
+        if (sketch == null) {
+            statistics.clear();
+            return;
+        }
+
+        for (DatabaseStatistics rowStatistics : sketchedStatistics) {
+            rowStatistics.clear();
+        }
+    }
+
+    /**
+     * The step with every value replaced by its bucket in the given row of the
+     * sketch.
+     */
+    private CategoricalBlock bucketsOf(CategoricalBlock step, int row) {
+        int[][] columns = new int[step.numAttributes()][step.size()];
+        int[] domainSizes = new int[step.numAttributes()];
+        int[] values;
+
+        for (int attribute = 0; attribute < step.numAttributes(); attribute++) {
+            values = step.column(attribute);
+            for (int i = 0; i < step.size(); i++) {
+                columns[attribute][i] = sketch.bucketOf(row, CountMinSketch.keyOf(attribute, values[i]));
+            }
+            domainSizes[attribute] = sketch.width();
+        }
+
+        return step.withValues(columns, domainSizes);
+    }
+
+    /**
+     * Summary of a window, from its exact statistics or the median of the
+     * summaries of the rows of the sketch, per record if steps are sized
+     * adaptively.
+     */
+    private double summarizeWindow(DatabaseStatistics windowStatistics,
+                                   DatabaseStatistics[] rowStatistics,
+                                   SymmetricalUncertainties uncertainties,
+                                   SummaryBuffers buffers) {
+        if (sketch == null) {
+            return adaptiveBlockSize == null ? summaryOf(windowStatistics, uncertainties, buffers) :
+                    summaryOf(windowStatistics, uncertainties, buffers) / windowStatistics.numRecords();
+        }
+
+        double[] rowSummaries = buffers.rowSummaries(sketch.depth());
+        for (int row = 0; row < rowSummaries.length; row++) {
+            rowSummaries[row] = summarize(rowStatistics[row], uncertainties, buffers);
+        }
+        reportTimes(buffers);
+        Arrays.sort(rowSummaries);
+
+        int middle = rowSummaries.length / 2;
+        double summary = rowSummaries.length % 2 == 1 ? rowSummaries[middle] :
+                (rowSummaries[middle - 1] + rowSummaries[middle]) / 2;
+        return adaptiveBlockSize == null ? summary : summary / rowStatistics[0].numRecords();
+    }
+
+    private void notifyListeners(DriftEvent event) {
+        if (!event.isEndOfStream()) {
+            metrics.count(Metrics.events, 1);
+            metrics.count(Metrics.drifts, event.isDrift() ? 1 : 0);
+        }
+
+        for (DriftListener listener : listeners) {
+            listener.onEvent(event);
+        }
+    }
+
+    /**
+     * Summary of a window from its statistics, e.g. merged from statistics of
+     * its parts counted elsewhere.
+     */
+    public double summaryOf(DatabaseStatistics statistics) {
+        return summaryOf(statistics, new SymmetricalUncertainties(statistics.numAttributes()),
+                new SummaryBuffers(statistics.numAttributes()));
+    }
+
+    /**
+     * Summarizes statistics like `summaryOf`, reusing the given uncertainties
+     * and buffers, which should not be in use elsewhere meanwhile.
+     */
+    double summaryOf(DatabaseStatistics statistics, SymmetricalUncertainties uncertainties, SummaryBuffers buffers) {
+        double summary = summarize(statistics, uncertainties, buffers);
+        reportTimes(buffers);
+        return summary;
+    }
+
+    /**
+     * Summarizes statistics like `summaryOf`, adding the time spent in each phase
+     * to the times of the buffers instead of reporting it.
+     */
+    private double summarize(DatabaseStatistics statistics,
+                             SymmetricalUncertainties uncertainties,
+                             SummaryBuffers buffers) {
+        if (statistics.numRecords() == 0) {
+            throw new IllegalArgumentException("Statistics should not be empty.");
         }
 
-        DatabaseStatistics statistics = new DatabaseStatistics(block);
         int numAttributes = statistics.numAttributes();
+        double[] attributeSummaries = buffers.summaries();
+        long start = metrics.now();
+        uncertainties.reset(statistics);
 
+        if (executor == null) {
+            for (int attribute = 0; attribute < numAttributes; attribute++) {
+                uncertainties.computeRow(attribute);
+            }
+            for (int attribute = 0; attribute < numAttributes; attribute++) {
+                DILCA.selectContext(uncertainties, attribute, buffers);
+            }
+            long selected = metrics.now();
+
+            for (int attribute = 0; attribute < numAttributes; attribute++) {
+                attributeSummaries[attribute] = DILCA.summaryFor(statistics, attribute, buffers);
+            }
+            buffers.addTimes(selected - start, metrics.now() - selected);
+        } else {
+            // Statistics are only read while computing distance matrices, so they can be shared between tasks.
+            List<Callable<Object>> rows = new ArrayList<>(numAttributes);
+            for (int attribute = 0; attribute < numAttributes; attribute++) {
+                final int attributeIndex = attribute;
+                rows.add(Executors.callable(() -> uncertainties.computeRow(attributeIndex)));
+            }
+            invokeAll(rows);
+            for (int attribute = 0; attribute < numAttributes; attribute++) {
+                DILCA.selectContext(uncertainties, attribute, buffers);
+            }
+            long selected = metrics.now();
+
+            List<Callable<Double>> tasks = new ArrayList<>(numAttributes);
+            for (int attribute = 0; attribute < numAttributes; attribute++) {
+                final int targetAttribute = attribute;
+                tasks.add(() -> DILCA.summaryFor(statistics, targetAttribute, buffers));
+            }
+            List<Double> results = invokeAll(tasks);
+            for (int attribute = 0; attribute < numAttributes; attribute++) {
+                attributeSummaries[attribute] = results.get(attribute);
+            }
+            buffers.addTimes(selected - start, metrics.now() - selected);
+        }
+
+        // Add up the summaries in order, so that the result does not depend on the order tasks finish.
         double summary = 0;
         for (int attribute = 0; attribute < numAttributes; attribute++) {
-            summary += DILCA.distanceMatrixFor(statistics, attribute).normalizedSquaredSumRoot();
-            // System.out.print(".");
-            // System.out.flush();
+            summary += attributeSummaries[attribute];
         }
         summary /= numAttributes;
-        // System.out.println();
 
         return summary;
     }
 
+    /**
+     * Reports the time the buffers spent in each phase of the summaries since
+     * the last report, once per phase.
+     */
+    private void reportTimes(SummaryBuffers buffers) {
+        metrics.time(Metrics.contextSelectionTime, buffers.contextSelectionTime());
+        metrics.time(Metrics.distanceTime, buffers.distanceTime());
+        buffers.clearTimes();
+    }
+
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        try {
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while summarizing the window.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
 }
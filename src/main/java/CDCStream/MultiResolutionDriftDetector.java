@@ -0,0 +1,332 @@
+/*
+ *      CDCStream/MultiResolutionDriftDetector.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package CDCStream;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+
+import DataStreamReader.CategoricalBlock;
+import DataStreamReader.CategoricalStreamReader;
+import DriftDetection.DriftEvent;
+import DriftDetection.DriftListener;
+import DriftDetection.Metrics;
+
+
+/**
+ * Detects drifts at several block sizes at once, in a single pass over the
+ * stream, e.g. to catch both short and long drifts.
+ *
+ * Blocks of the smallest size are read and counted. Once the blocks of a size
+ * make up a block of the next size, their statistics are merged into its
+ * statistics instead of counting its records again. Every size decides on its
+ * blocks like a `DriftDetector` of that block size, and reports the same events,
+ * along with the block size, to its own listeners. Listeners are notified once the block that completes
+ * the blocks of the events has been processed at every size, so that they can
+ * checkpoint the detector.
+ */
+public class MultiResolutionDriftDetector implements DriftDetection.DriftDetector {
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    /**
+     * Creates a detector for the given block sizes, in ascending order, each of
+     * which should be a multiple of the one before it.
+     */
+    public MultiResolutionDriftDetector(CategoricalStreamReader stream, int[] blockSizes, double driftCoefficient) {
+        if (blockSizes.length == 0 || blockSizes[0] <= 0) {
+            throw new IllegalArgumentException("Block sizes should be positive.");
+        }
+        for (int level = 1; level < blockSizes.length; level++) {
+            if (blockSizes[level] <= blockSizes[level - 1] || blockSizes[level] % blockSizes[level - 1] != 0) {
+                throw new IllegalArgumentException("Every block size should be a multiple of the one before it.");
+            }
+        }
+
+        this.stream = stream;
+        this.blockSizes = blockSizes.clone();
+        this.detectors = new DriftDetector[blockSizes.length];
+        this.numMergedBlocks = new int[blockSizes.length];
+        this.listeners = new ArrayList<>(blockSizes.length);
+        for (int level = 0; level < blockSizes.length; level++) {
+            final int eventLevel = level;
+            final int eventBlockSize = blockSizes[level];
+            detectors[level] = new DriftDetector(null, blockSizes[level], driftCoefficient);
+            detectors[level].addListener(event -> pendingEvents.add(
+                    () -> notifyListeners(eventLevel, event.forBlockSize(eventBlockSize))));
+            listeners.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Adds a listener of the events of the given block size.
+     */
+    public void addListener(int blockSize, DriftListener listener) {
+        listeners.get(levelOf(blockSize)).add(listener);
+    }
+
+    /**
+     * Adds a listener of the events of every block size, which tells them apart
+     * by their block sizes.
+     */
+    @Override
+    public void addListener(DriftListener listener) {
+        for (List<DriftListener> levelListeners : listeners) {
+            levelListeners.add(listener);
+        }
+    }
+
+    /**
+     * See {@link DriftDetector#setExecutor}.
+     */
+    public void setExecutor(ExecutorService executor) {
+        for (DriftDetector detector : detectors) {
+            detector.setExecutor(executor);
+        }
+    }
+
+    /**
+     * See {@link DriftDetector#setSparseThreshold}. Should be called before any
+     * block is processed.
+     */
+    public void setSparseThreshold(int numCounts) {
+        if (numCounts < 0) {
+            throw new IllegalArgumentException("Threshold should not be negative.");
+        }
+        this.sparseThreshold = numCounts;
+    }
+
+    @Override
+    public void setMetrics(Metrics metrics) {
+        for (DriftDetector detector : detectors) {
+            detector.setMetrics(metrics);
+        }
+        this.metrics = metrics;
+        if (stream != null) {
+            stream.setMetrics(metrics);
+        }
+    }
+
+    /**
+     * Processes the next block of the smallest size, and the blocks of larger
+     * sizes that it completes.
+     */
+    @Override
+    public void process(CategoricalBlock block) {
+        if (statistics == null) {
+            statistics = new DatabaseStatistics[blockSizes.length];
+            for (int level = 0; level < blockSizes.length; level++) {
+                statistics[level] = new DatabaseStatistics(block.numAttributes(), sparseThreshold);
+            }
+            uncertainties = new SymmetricalUncertainties(block.numAttributes());
+            buffers = new SummaryBuffers(block.numAttributes());
+        }
+
+        long start = metrics.now();
+        statistics[0].add(block);
+        long statisticsTime = metrics.now() - start;
+
+        position = block.offset() + block.size();
+        numMergedBlocks[0] = 1;
+        for (int level = 0; level < blockSizes.length && isComplete(level); level++) {
+            statisticsTime += completeBlock(level);
+        }
+        metrics.time(Metrics.statisticsTime, statisticsTime);
+
+        notifyListeners();
+    }
+
+    /**
+     * Processes the blocks of larger sizes that the end of the stream cuts short,
+     * like the last block of a stream, and reports the end of the stream at every
+     * size.
+     */
+    @Override
+    public void finish() {
+        for (int level = 1; level < blockSizes.length; level++) {
+            if (numMergedBlocks[level] > 0) {
+                completeBlock(level);
+            }
+        }
+
+        for (DriftDetector detector : detectors) {
+            detector.finish();
+        }
+
+        notifyListeners();
+    }
+
+    /**
+     * Blocks of the smallest size are read.
+     */
+    @Override
+    public int nextBlockSize() {
+        return blockSizes[0];
+    }
+
+    @Override
+    public boolean step() {
+        CategoricalBlock block;
+        try {
+            block = stream.block(blockSizes[0]);
+            stream.discard(block.size());
+        } catch (NoSuchElementException e) {
+            finish();
+            return false;
+        }
+
+        process(block);
+        return true;
+    }
+
+    /**
+     * Writes the statistics of the current block of every size along with the
+     * state of its decisions.
+     */
+    @Override
+    public void checkpoint(DataOutput out) throws IOException {
+        out.writeInt(blockSizes.length);
+        for (int blockSize : blockSizes) {
+            out.writeInt(blockSize);
+        }
+        out.writeInt(position);
+
+        out.writeBoolean(statistics != null);
+        for (int level = 0; level < blockSizes.length; level++) {
+            out.writeInt(numMergedBlocks[level]);
+            if (statistics != null) {
+                statistics[level].writeTo(out);
+            }
+            detectors[level].checkpoint(out);
+        }
+    }
+
+    @Override
+    public void restore(DataInput in) throws IOException {
+        int numLevels = in.readInt();
+        boolean sameBlockSizes = numLevels == blockSizes.length;
+        for (int level = 0; level < numLevels; level++) {
+            sameBlockSizes &= level < blockSizes.length && in.readInt() == blockSizes[level];
+        }
+        if (!sameBlockSizes) {
+            throw new IllegalArgumentException("Checkpoint was written by a detector with different block sizes.");
+        }
+        position = in.readInt();
+
+        boolean hasStatistics = in.readBoolean();
+        statistics = hasStatistics ? new DatabaseStatistics[blockSizes.length] : null;
+        for (int level = 0; level < blockSizes.length; level++) {
+            numMergedBlocks[level] = in.readInt();
+            if (hasStatistics) {
+                statistics[level] = DatabaseStatistics.readFrom(in);
+            }
+            detectors[level].restore(in);
+        }
+
+        if (hasStatistics) {
+            uncertainties = new SymmetricalUncertainties(statistics[0].numAttributes());
+            buffers = new SummaryBuffers(statistics[0].numAttributes());
+        }
+    }
+
+    @Override
+    public void run() {
+        while (step()) {
+            // Process the stream to its end.
+        }
+    }
+
+    private final CategoricalStreamReader stream;
+    private final int[] blockSizes;
+    private int sparseThreshold = DatabaseStatistics.defaultSparseThreshold;
+    private Metrics metrics = Metrics.none;
+
+    // Decisions of every block size, and the statistics of its current block along with the number of blocks of
+    // the size before it that are merged into them.
+    private final DriftDetector[] detectors;
+    private DatabaseStatistics[] statistics;
+    private final int[] numMergedBlocks;
+    // Listeners of every block size, and the notifications of the events of the block being processed.
+    private final List<List<DriftListener>> listeners;
+    private final List<Runnable> pendingEvents = new ArrayList<>();
+    // Shared by the decisions of all sizes, which are made one after another.
+    private SymmetricalUncertainties uncertainties;
+    private SummaryBuffers buffers;
+
+    // Number of records processed so far.
+    private int position = 0;
+
+    private void notifyListeners(int level, DriftEvent event) {
+        for (DriftListener listener : listeners.get(level)) {
+            listener.onEvent(event);
+        }
+    }
+
+    private void notifyListeners() {
+        try {
+            for (Runnable notification : pendingEvents) {
+                notification.run();
+            }
+        } finally {
+            pendingEvents.clear();
+        }
+    }
+
+    private int levelOf(int blockSize) {
+        for (int level = 0; level < blockSizes.length; level++) {
+            if (blockSizes[level] == blockSize) {
+                return level;
+            }
+        }
+        throw new IllegalArgumentException("Block size " + blockSize + " is not detected.");
+    }
+
+    private boolean isComplete(int level) {
+        return level == 0 || numMergedBlocks[level] == blockSizes[level] / blockSizes[level - 1];
+    }
+
+    /**
+     * Decides on the current block of the given level, and merges its statistics
+     * into the block of the next level.
+     *
+     * @return the time spent merging the statistics.
+     */
+    private long completeBlock(int level) {
+        DriftDetector detector = detectors[level];
+        detector.process(position, detector.summaryOf(statistics[level], uncertainties, buffers));
+
+        long start = metrics.now();
+        if (level + 1 < blockSizes.length) {
+            statistics[level + 1].merge(statistics[level]);
+            numMergedBlocks[level + 1]++;
+        }
+        statistics[level].clear();
+        numMergedBlocks[level] = 0;
+        return metrics.now() - start;
+    }
+
+}
@@ -0,0 +1,272 @@
+/*
+ *      CDCStream/SparseCooccurrences.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package CDCStream;
+
+import java.util.Arrays;
+
+
+/**
+ * Co-occurrences of the values of a pair of attributes whose domains are too
+ * large for a dense table, kept in an open-addressing hash table keyed by the
+ * pair of values.
+ *
+ * The first time a row is read after the counts change, the non-zero counts are
+ * sorted into compressed rows of each attribute, so that the values that
+ * co-occur with a value of either attribute can be listed in ascending order.
+ * Rows can be read by many threads at once while the counts do not change.
+ */
+class SparseCooccurrences {
+
+    /*--------------------------------------------------------------------------*
+     *                        STATIC MEMBERS AND METHODS                        *
+     *--------------------------------------------------------------------------*/
+
+    private static final long emptyKey = -1;
+
+    private static long keyOf(int firstValue, int secondValue) {
+        return ((long) firstValue << 32) | secondValue;
+    }
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    SparseCooccurrences() {
+        allocate(16);
+    }
+
+    void add(int firstValue, int secondValue, int delta) {
+        long key = keyOf(firstValue, secondValue);
+        int slot = slotOf(key);
+        if (keys[slot] == emptyKey) {
+            if (2 * (numSlotsUsed + 1) > keys.length) {
+                rehash();
+                slot = slotOf(key);
+            }
+            keys[slot] = key;
+            numSlotsUsed++;
+        }
+        counts[slot] += delta;
+        if (indexed) {
+            indexed = false;
+        }
+    }
+
+    /**
+     * Resets all counts to zero, keeping the table to count the following
+     * records.
+     */
+    void clear() {
+        Arrays.fill(keys, emptyKey);
+        Arrays.fill(counts, 0);
+        numSlotsUsed = 0;
+        firstRows.clear();
+        secondRows.clear();
+        indexed = true;
+    }
+
+    /**
+     * Copies the values of one attribute that co-occur with the given value of
+     * the other attribute, in ascending order, along with their co-occurrences,
+     * and returns their number.
+     *
+     * @param ofFirst whether `value` is a value of the first attribute.
+     */
+    int row(boolean ofFirst, int value, int[] values, int[] rowCounts) {
+        if (!indexed) {
+            index();
+        }
+
+        Rows rows = ofFirst ? firstRows : secondRows;
+        if (value >= rows.capacity) {
+            return 0;
+        }
+
+        int start = rows.starts[value];
+        int size = rows.starts[value + 1] - start;
+        System.arraycopy(rows.values, start, values, 0, size);
+        System.arraycopy(rows.counts, start, rowCounts, 0, size);
+        return size;
+    }
+
+    private long[] keys;
+    private int[] counts;
+    private int numSlotsUsed;
+    private long[] spareKeys = new long[0];
+    private int[] spareCounts = new int[0];
+    // Entries of the non-zero counts, and their rows, which are reused every time the table is indexed.
+    private int[] firstValues = new int[0], secondValues = new int[0], entryCounts = new int[0];
+    private final Rows bySecond = new Rows(), firstRows = new Rows(), secondRows = new Rows();
+    // Whether the rows hold the current counts. Written last once they do, so that other threads see the rows.
+    private volatile boolean indexed = true;
+
+    /**
+     * Sorts the non-zero counts into rows of both attributes, unless another
+     * thread has just done so.
+     */
+    private synchronized void index() {
+        if (indexed) {
+            return;
+        }
+
+        int size = 0, firstCapacity = 0, secondCapacity = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != emptyKey && counts[slot] != 0) {
+                size++;
+                firstCapacity = Math.max(firstCapacity, (int) (keys[slot] >>> 32) + 1);
+                secondCapacity = Math.max(secondCapacity, (int) keys[slot] + 1);
+            }
+        }
+
+        if (entryCounts.length < size) {
+            int capacity = Math.max(size, 2 * entryCounts.length);
+            firstValues = new int[capacity];
+            secondValues = new int[capacity];
+            entryCounts = new int[capacity];
+        }
+        size = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != emptyKey && counts[slot] != 0) {
+                firstValues[size] = (int) (keys[slot] >>> 32);
+                secondValues[size] = (int) keys[slot];
+                entryCounts[size] = counts[slot];
+                size++;
+            }
+        }
+
+        // Group by second value and then stably by first value, so that every row of the first attribute is in
+        // ascending order; grouping these stably by second value does the same for the second attribute.
+        bySecond.group(secondValues, firstValues, entryCounts, size, secondCapacity);
+        firstRows.group(bySecond.values, bySecond.rowValues, bySecond.counts, size, firstCapacity);
+        secondRows.group(firstRows.values, firstRows.rowValues, firstRows.counts, size, secondCapacity);
+        indexed = true;
+    }
+
+    private void allocate(int numSlots) {
+        keys = new long[numSlots];
+        counts = new int[numSlots];
+        Arrays.fill(keys, emptyKey);
+        numSlotsUsed = 0;
+    }
+
+    private int slotOf(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (keys[slot] != emptyKey && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+
+        // Pairs that no longer co-occur are dropped, so the table only grows with the number of non-zero counts.
+        int numNonZero = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != emptyKey && oldCounts[slot] != 0) {
+                numNonZero++;
+            }
+        }
+        int numSlots = oldKeys.length;
+        while (4 * (numNonZero + 1) > numSlots) {
+            numSlots *= 2;
+        }
+
+        // Slots of the table before the last rehash are kept, and reused when the size of the table does not change.
+        if (spareKeys.length == numSlots) {
+            keys = spareKeys;
+            counts = spareCounts;
+            Arrays.fill(keys, emptyKey);
+            Arrays.fill(counts, 0);
+            numSlotsUsed = 0;
+        } else {
+            allocate(numSlots);
+        }
+        spareKeys = oldKeys;
+        spareCounts = oldCounts;
+
+        int slot;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != emptyKey && oldCounts[i] != 0) {
+                slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+                numSlotsUsed++;
+            }
+        }
+    }
+
+    /**
+     * Counts grouped into rows by the value of one of the attributes, in which
+     * the values of the other attribute keep their order. `starts[v]` is the
+     * position of the first entry of value `v`, for values less than
+     * `capacity`. Arrays only grow, when there are more entries or values.
+     */
+    private static final class Rows {
+
+        private int[] starts = new int[1];
+        private int[] values = new int[0];
+        private int[] counts = new int[0];
+        // Row value of every entry, to group the entries again by the other attribute.
+        private int[] rowValues = new int[0];
+        private int[] next = new int[0];
+        private int capacity = 0;
+
+        private void group(int[] entryRowValues, int[] entryValues, int[] entryCounts, int size, int capacity) {
+            if (starts.length < capacity + 1) {
+                starts = new int[Math.max(capacity + 1, 2 * starts.length)];
+                next = new int[starts.length];
+            }
+            if (values.length < size) {
+                int entryCapacity = Math.max(size, 2 * values.length);
+                values = new int[entryCapacity];
+                counts = new int[entryCapacity];
+                rowValues = new int[entryCapacity];
+            }
+            this.capacity = capacity;
+
+            Arrays.fill(starts, 0, capacity + 1, 0);
+            for (int i = 0; i < size; i++) {
+                starts[entryRowValues[i] + 1]++;
+            }
+            for (int value = 0; value < capacity; value++) {
+                starts[value + 1] += starts[value];
+            }
+
+            System.arraycopy(starts, 0, next, 0, capacity);
+            int position;
+            for (int i = 0; i < size; i++) {
+                position = next[entryRowValues[i]]++;
+                values[position] = entryValues[i];
+                counts[position] = entryCounts[i];
+                rowValues[position] = entryRowValues[i];
+            }
+        }
+
+        private void clear() {
+            Arrays.fill(starts, 0, capacity + 1, 0);
+        }
+
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ *      CDCStream/SummaryBuffers.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package CDCStream;
+
+
+/**
+ * Arrays reused to summarize the statistics of the following windows, so that
+ * summarizing allocates nothing once the domains stop growing.
+ *
+ * Every attribute has arrays of its own, so that different attributes can be
+ * summarized concurrently.
+ */
+class SummaryBuffers {
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    SummaryBuffers(int numAttributes) {
+        this.values = new int[numAttributes][];
+        this.counts = new int[numAttributes][];
+        this.contextAttributes = new int[numAttributes][];
+        this.relevances = new double[numAttributes][];
+        this.numContextAttributes = new int[numAttributes];
+        this.summaries = new double[numAttributes];
+
+        for (int i = 0; i < numAttributes; i++) {
+            values[i] = new int[0];
+            counts[i] = new int[0];
+            contextAttributes[i] = new int[numAttributes];
+            relevances[i] = new double[numAttributes];
+        }
+    }
+
+    /**
+     * Makes room for a row of `length` co-occurrences in `values` and `counts`
+     * of the given attribute.
+     */
+    void ensureRowCapacity(int attributeIndex, int length) {
+        if (values[attributeIndex].length < length) {
+            values[attributeIndex] = new int[Math.max(length, 2 * values[attributeIndex].length)];
+            counts[attributeIndex] = new int[values[attributeIndex].length];
+        }
+    }
+
+    int[] values(int attributeIndex) {
+        return values[attributeIndex];
+    }
+
+    int[] counts(int attributeIndex) {
+        return counts[attributeIndex];
+    }
+
+    /**
+     * Room for the indexes of the context attributes of the given attribute.
+     */
+    int[] contextAttributes(int attributeIndex) {
+        return contextAttributes[attributeIndex];
+    }
+
+    int numContextAttributes(int attributeIndex) {
+        return numContextAttributes[attributeIndex];
+    }
+
+    void setNumContextAttributes(int attributeIndex, int numContextAttributes) {
+        this.numContextAttributes[attributeIndex] = numContextAttributes;
+    }
+
+    /**
+     * Room for the relevance of every attribute to the given attribute.
+     */
+    double[] relevances(int attributeIndex) {
+        return relevances[attributeIndex];
+    }
+
+    /**
+     * Room for the summary of every attribute.
+     */
+    double[] summaries() {
+        return summaries;
+    }
+
+    /**
+     * Room for the summaries of the given number of rows of a sketch.
+     */
+    double[] rowSummaries(int numRows) {
+        if (rowSummaries.length != numRows) {
+            rowSummaries = new double[numRows];
+        }
+        return rowSummaries;
+    }
+
+    int numAttributes() {
+        return summaries.length;
+    }
+
+    /**
+     * Adds to the time spent selecting context attributes and computing
+     * distances for the summaries since the times were last cleared.
+     */
+    void addTimes(long contextSelectionTime, long distanceTime) {
+        this.contextSelectionTime += contextSelectionTime;
+        this.distanceTime += distanceTime;
+    }
+
+    long contextSelectionTime() {
+        return contextSelectionTime;
+    }
+
+    long distanceTime() {
+        return distanceTime;
+    }
+
+    void clearTimes() {
+        contextSelectionTime = 0;
+        distanceTime = 0;
+    }
+
+    private final int[][] values;
+    private final int[][] counts;
+    private final int[][] contextAttributes;
+    private final double[][] relevances;
+    private final double[] summaries;
+    private final int[] numContextAttributes;
+    private double[] rowSummaries = new double[0];
+    private long contextSelectionTime = 0;
+    private long distanceTime = 0;
+
+}
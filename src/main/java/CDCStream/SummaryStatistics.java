@@ -0,0 +1,176 @@
+/*
+ *      CDCStream/SummaryStatistics.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package CDCStream;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Online mean and population standard deviation of the summaries of the blocks
+ * of the current concept, in constant memory.
+ *
+ * Summaries are accumulated with Welford's algorithm. The history can either
+ * cover all the summaries since it was last cleared, only the most recent ones,
+ * or all of them with exponentially decaying weights.
+ */
+class SummaryStatistics {
+
+    /*--------------------------------------------------------------------------*
+     *                        STATIC MEMBERS AND METHODS                        *
+     *--------------------------------------------------------------------------*/
+
+    static SummaryStatistics unbounded() {
+        return new SummaryStatistics(0, 1);
+    }
+
+    /**
+     * Statistics of at most `capacity` most recent summaries.
+     */
+    static SummaryStatistics bounded(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Capacity should be at least two.");
+        }
+        return new SummaryStatistics(capacity, 1);
+    }
+
+    /**
+     * Statistics in which the weight of a summary is multiplied by `decay` every
+     * time a new summary is added.
+     */
+    static SummaryStatistics decayed(double decay) {
+        if (decay <= 0 || decay >= 1) {
+            throw new IllegalArgumentException("Decay should be between zero and one.");
+        }
+        return new SummaryStatistics(0, decay);
+    }
+
+    /**
+     * Reads statistics written by `writeTo`, along with the kind of history they
+     * cover.
+     */
+    static SummaryStatistics readFrom(DataInput in) throws IOException {
+        SummaryStatistics statistics = new SummaryStatistics(in.readInt(), in.readDouble());
+        statistics.weight = in.readDouble();
+        statistics.mean = in.readDouble();
+        statistics.squaredDeviations = in.readDouble();
+
+        statistics.count = in.readInt();
+        if (statistics.capacity > 0) {
+            for (int i = 0; i < statistics.count; i++) {
+                statistics.window[i] = in.readDouble();
+            }
+        }
+
+        return statistics;
+    }
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    void add(double summary) {
+        if (capacity > 0 && count == capacity) {
+            remove(window[start]);
+            start = (start + 1) % capacity;
+        }
+        if (capacity > 0) {
+            window[(start + count) % capacity] = summary;
+        }
+
+        count++;
+        weight = decay * weight + 1;
+
+        double delta = summary - mean;
+        mean += delta / weight;
+        squaredDeviations = decay * squaredDeviations + delta * (summary - mean);
+    }
+
+    void clear() {
+        count = 0;
+        start = 0;
+        weight = 0;
+        mean = 0;
+        squaredDeviations = 0;
+    }
+
+    /**
+     * Number of summaries in the history, regardless of their weights.
+     */
+    int count() {
+        return count;
+    }
+
+    double mean() {
+        return mean;
+    }
+
+    double standardDeviation() {
+        return count > 0 ? Math.sqrt(Math.max(squaredDeviations, 0) / weight) : 0;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(capacity);
+        out.writeDouble(decay);
+        out.writeDouble(weight);
+        out.writeDouble(mean);
+        out.writeDouble(squaredDeviations);
+
+        // The window is written from its oldest summary.
+        out.writeInt(count);
+        if (capacity > 0) {
+            for (int i = 0; i < count; i++) {
+                out.writeDouble(window[(start + i) % capacity]);
+            }
+        }
+    }
+
+    private final int capacity;
+    private final double decay;
+    private final double[] window;
+
+    private int count = 0;
+    private int start = 0;
+    private double weight = 0;
+    private double mean = 0;
+    private double squaredDeviations = 0;
+
+    private SummaryStatistics(int capacity, double decay) {
+        this.capacity = capacity;
+        this.decay = decay;
+        this.window = capacity > 0 ? new double[capacity] : null;
+    }
+
+    private void remove(double summary) {
+        count--;
+        weight--;
+
+        if (count == 0) {
+            mean = 0;
+            squaredDeviations = 0;
+        } else {
+            double delta = summary - mean;
+            mean -= delta / weight;
+            squaredDeviations -= delta * (summary - mean);
+        }
+    }
+
+}
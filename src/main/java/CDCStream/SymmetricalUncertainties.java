@@ -0,0 +1,179 @@
+/*
+ *      CDCStream/SymmetricalUncertainties.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package CDCStream;
+
+
+/**
+ * Entropy of every attribute and symmetrical uncertainty of every pair of
+ * attributes of a database, computed once and shared by all the distance
+ * matrices built from the same statistics.
+ */
+class SymmetricalUncertainties {
+
+    /*--------------------------------------------------------------------------*
+     *                        STATIC MEMBERS AND METHODS                        *
+     *--------------------------------------------------------------------------*/
+
+    static SymmetricalUncertainties of(DatabaseStatistics statistics) {
+        SymmetricalUncertainties uncertainties = new SymmetricalUncertainties(statistics);
+        for (int i = 0; i < statistics.numAttributes(); i++) {
+            uncertainties.computeRow(i);
+        }
+        return uncertainties;
+    }
+
+    private static final double log2 = Math.log(2);
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    /**
+     * Computes entropies of all attributes. Symmetrical uncertainties are only
+     * available after `computeRow` is called for every attribute, which can be
+     * done concurrently for different attributes; use `of` to do it all at once.
+     */
+    SymmetricalUncertainties(DatabaseStatistics statistics) {
+        this(statistics.numAttributes());
+        reset(statistics);
+    }
+
+    /**
+     * Creates uncertainties that are computed for statistics given to `reset`,
+     * and whose arrays are reused for the statistics given after them.
+     */
+    SymmetricalUncertainties(int numAttributes) {
+        this.numAttributes = numAttributes;
+        this.entropies = new double[numAttributes];
+        this.uncertainties = new double[numAttributes * numAttributes];
+        this.rowValues = new int[numAttributes][];
+        this.rowCooccurrences = new int[numAttributes][];
+
+        for (int i = 0; i < numAttributes; i++) {
+            rowValues[i] = new int[0];
+            rowCooccurrences[i] = new int[0];
+        }
+    }
+
+    /**
+     * Computes entropies of all attributes of other statistics, after which
+     * `computeRow` should be called for every attribute again.
+     */
+    void reset(DatabaseStatistics statistics) {
+        if (statistics.numAttributes() != numAttributes) {
+            throw new IllegalArgumentException("Number of attributes should match.");
+        }
+        this.statistics = statistics;
+
+        double probability, occurrences, totalOccurrences;
+        int[] attributeOccurrences, domain;
+
+        for (int i = 0; i < numAttributes; i++) {
+            attributeOccurrences = statistics.occurrencesFor(i);
+            domain = statistics.domainOf(i);
+
+            double entropy = 0;
+            totalOccurrences = 0;
+            for (int k = 0; k < statistics.domainSize(i); k++) {
+                totalOccurrences += attributeOccurrences[domain[k]];
+            }
+            for (int k = 0; k < statistics.domainSize(i); k++) {
+                occurrences = attributeOccurrences[domain[k]];
+                probability = occurrences / totalOccurrences;
+                entropy -= probability * Math.log(probability) / log2;
+            }
+            entropies[i] = entropy;
+        }
+    }
+
+    /**
+     * Computes symmetrical uncertainty of the given attribute and every attribute
+     * with a greater index.
+     */
+    void computeRow(int attributeIndex) {
+        double uncertainty;
+        for (int targetAttributeIndex = attributeIndex + 1; targetAttributeIndex < numAttributes; targetAttributeIndex++) {
+            uncertainty = symmetricalUncertainty(targetAttributeIndex, attributeIndex);
+            uncertainties[attributeIndex * numAttributes + targetAttributeIndex] = uncertainty;
+            uncertainties[targetAttributeIndex * numAttributes + attributeIndex] = uncertainty;
+        }
+    }
+
+    double between(int firstAttributeIndex, int secondAttributeIndex) {
+        return uncertainties[firstAttributeIndex * numAttributes + secondAttributeIndex];
+    }
+
+    double entropyOf(int attributeIndex) {
+        return entropies[attributeIndex];
+    }
+
+    private DatabaseStatistics statistics;
+    private final int numAttributes;
+    private final double[] entropies;
+    private final double[] uncertainties;
+    // Rows of co-occurrences read while computing every row of uncertainties, so that rows can be computed
+    // concurrently.
+    private final int[][] rowValues;
+    private final int[][] rowCooccurrences;
+
+    private double symmetricalUncertainty(int targetAttributeIndex, int attributeIndex) {
+        int[] attributeOccurrences = statistics.occurrencesFor(attributeIndex);
+        int targetDomainSize = statistics.domainSize(targetAttributeIndex);
+        if (rowValues[attributeIndex].length < targetDomainSize) {
+            rowValues[attributeIndex] = new int[Math.max(targetDomainSize, 2 * rowValues[attributeIndex].length)];
+            rowCooccurrences[attributeIndex] = new int[rowValues[attributeIndex].length];
+        }
+        int[] targetValues = rowValues[attributeIndex];
+        int[] cooccurrences = rowCooccurrences[attributeIndex];
+
+        double targetEntropy = entropies[targetAttributeIndex];
+        double attributeEntropy = entropies[attributeIndex];
+        double attributeTotalOccurrences = statistics.numRecords();
+
+        double probability, occurrences, attributeValueTotalOccurrences;
+
+        // Calculate conditional entropy of target attribute with respect to the given attribute.
+        double conditionalEntropy = 0;
+        int[] domain = statistics.domainOf(attributeIndex);
+        int numTargetValues, value;
+        for (int k = 0; k < statistics.domainSize(attributeIndex); k++) {
+            value = domain[k];
+            double currentValueEntropy = 0;
+            attributeValueTotalOccurrences = attributeOccurrences[value];
+            numTargetValues = statistics.cooccurrencesOf(attributeIndex, value, targetAttributeIndex,
+                    targetValues, cooccurrences);
+            for (int i = 0; i < numTargetValues; i++) {
+                occurrences = cooccurrences[i];
+                probability = occurrences / attributeValueTotalOccurrences;
+                currentValueEntropy -= probability * Math.log(probability) / log2;
+            }
+            conditionalEntropy += (attributeValueTotalOccurrences / attributeTotalOccurrences) * currentValueEntropy;
+        }
+
+        // Calculate symmetrical uncertainty.
+        if (0 == targetEntropy && 0 == attributeEntropy) {
+            return 0;
+        } else {
+            return 2 * (targetEntropy - conditionalEntropy) / (targetEntropy + attributeEntropy);
+        }
+    }
+
+}
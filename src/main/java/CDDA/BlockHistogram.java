@@ -0,0 +1,158 @@
+/*
+ *      CDDA/BlockHistogram.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package CDDA;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import DataStreamReader.CategoricalBlock;
+
+
+/**
+ * Size of the equivalence class of every value of every attribute in a block,
+ * i.e. the number of records of the block in which the attribute takes the value.
+ *
+ * Counts are kept in arrays indexed by value code, which are reused for the
+ * following blocks. Values that occur are remembered, so resetting the counts
+ * takes time proportional to the block rather than to the domains.
+ */
+class BlockHistogram {
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    BlockHistogram(int numAttributes) {
+        this.counts = new int[numAttributes][];
+        this.values = new int[numAttributes][];
+        this.numValues = new int[numAttributes];
+
+        for (int i = 0; i < numAttributes; i++) {
+            counts[i] = new int[0];
+            values[i] = new int[0];
+        }
+    }
+
+    void count(CategoricalBlock block) {
+        reset(block.size());
+
+        int[] column;
+        for (int attribute = 0; attribute < counts.length; attribute++) {
+            ensureCapacity(attribute, block.domainSize(attribute));
+            column = block.column(attribute);
+            for (int i = 0; i < block.size(); i++) {
+                increment(attribute, column[i]);
+            }
+        }
+    }
+
+    /**
+     * Resets all counts to zero before counting a block of the given size.
+     */
+    void reset(int numRecords) {
+        int[] attributeCounts, attributeValues;
+        for (int attribute = 0; attribute < counts.length; attribute++) {
+            attributeCounts = counts[attribute];
+            attributeValues = values[attribute];
+            for (int i = 0; i < numValues[attribute]; i++) {
+                attributeCounts[attributeValues[i]] = 0;
+            }
+            numValues[attribute] = 0;
+        }
+        this.numRecords = numRecords;
+    }
+
+    /**
+     * Makes room for counting values with codes less than `domainSize`.
+     */
+    void ensureCapacity(int attribute, int domainSize) {
+        if (counts[attribute].length < domainSize) {
+            int capacity = Math.max(domainSize, 2 * counts[attribute].length);
+            counts[attribute] = Arrays.copyOf(counts[attribute], capacity);
+            values[attribute] = Arrays.copyOf(values[attribute], capacity);
+        }
+    }
+
+    /**
+     * Counts one more occurrence of the value and returns its new count.
+     */
+    int increment(int attribute, int value) {
+        int count = ++counts[attribute][value];
+        if (count == 1) {
+            values[attribute][numValues[attribute]] = value;
+            numValues[attribute]++;
+        }
+        return count;
+    }
+
+    int countOf(int attribute, int value) {
+        return value < counts[attribute].length ? counts[attribute][value] : 0;
+    }
+
+    int numAttributes() {
+        return counts.length;
+    }
+
+    int numRecords() {
+        return numRecords;
+    }
+
+    /**
+     * Writes the number of records and the counts of the values that occur.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(numRecords);
+        for (int attribute = 0; attribute < counts.length; attribute++) {
+            out.writeInt(numValues[attribute]);
+            for (int i = 0; i < numValues[attribute]; i++) {
+                out.writeInt(values[attribute][i]);
+                out.writeInt(counts[attribute][values[attribute][i]]);
+            }
+        }
+    }
+
+    /**
+     * Replaces the counts with the ones written by `writeTo`.
+     */
+    void readFrom(DataInput in) throws IOException {
+        reset(in.readInt());
+
+        int size, value;
+        for (int attribute = 0; attribute < counts.length; attribute++) {
+            size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                value = in.readInt();
+                ensureCapacity(attribute, value + 1);
+                values[attribute][i] = value;
+                counts[attribute][value] = in.readInt();
+            }
+            numValues[attribute] = size;
+        }
+    }
+
+    private final int[][] counts;
+    private final int[][] values;
+    private final int[] numValues;
+    private int numRecords = 0;
+
+}
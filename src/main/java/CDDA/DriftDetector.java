@@ -20,116 +20,397 @@
 
 package CDDA;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.NoSuchElementException;
 
-import com.google.common.collect.ImmutableList;
+import DataStreamReader.BlockPipeline;
+import DataStreamReader.CategoricalBlock;
+import DataStreamReader.CategoricalStreamReader;
+import DriftDetection.AdaptiveBlockSize;
+import DriftDetection.BatchDriftDetector;
+import DriftDetection.CountMinSketch;
+import DriftDetection.DriftEvent;
+import DriftDetection.DriftListener;
+import DriftDetection.Metrics;
 
-import DataStreamReader.CategoricalRecordStreamReader;
-import com.google.common.collect.Sets;
 
-
-public class DriftDetector {
+public class DriftDetector implements BatchDriftDetector {
 
     /*--------------------------------------------------------------------------*
      *                       INSTANCE MEMBERS AND METHODS                       *
      *--------------------------------------------------------------------------*/
 
-    public DriftDetector(CategoricalRecordStreamReader stream, int blockSize, double minChangeDegree) {
+    public DriftDetector(CategoricalStreamReader stream, int blockSize, double minChangeDegree) {
         this.stream = stream;
         this.blockSize = blockSize;
         this.minChangeDegree = minChangeDegree;
     }
 
-    public void run() {
-        int lastCount = 0, currentCount = 0;
+    /**
+     * Makes the detector read up to `capacity` blocks ahead on a separate thread
+     * while it processes the current block. Zero, the default, makes the detector
+     * read blocks on its own thread only when they are needed.
+     */
+    public void setPipelineCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity should not be negative.");
+        }
+        this.pipelineCapacity = capacity;
+    }
+
+    /**
+     * Makes the detector count the values of every attribute of a block in a
+     * count-min sketch with the given error budget, instead of exactly, so that
+     * the memory taken by the counts does not depend on the domains of the
+     * attributes.
+     *
+     * A record is put in a lower approximation when its value is estimated not to
+     * occur in the other block. Estimates never miss a value that occurs, so
+     * lower approximations can only be underestimated, by the records whose
+     * values collide with values of the other block in every row of the sketch;
+     * see {@link CountMinSketch} for how likely that is. Should be called before
+     * any block is processed.
+     */
+    public void setApproximation(double epsilon, double delta) {
+        if (epsilon <= 0 || epsilon >= 1 || delta <= 0 || delta >= 1) {
+            throw new IllegalArgumentException("Error budget should be between zero and one.");
+        }
+        this.epsilon = epsilon;
+        this.delta = delta;
+    }
+
+    /**
+     * Makes the detector read blocks of the size chosen by the given policy,
+     * instead of the size it was constructed with. Change degrees do not depend
+     * on the sizes of the blocks compared. Replaces any previous policy. Should
+     * be called before any block is processed.
+     */
+    public void setAdaptiveBlockSize(AdaptiveBlockSize adaptiveBlockSize) {
+        if (adaptiveBlockSize == null) {
+            throw new IllegalArgumentException("Policy should not be null.");
+        }
+
+        // The previous policy stops being notified of events.
+        if (this.adaptiveBlockSize != null) {
+            listeners.remove(this.adaptiveBlockSize);
+        }
+        this.adaptiveBlockSize = adaptiveBlockSize;
+        listeners.add(adaptiveBlockSize);
+    }
+
+    @Override
+    public void addListener(DriftListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+        if (stream != null) {
+            stream.setMetrics(metrics);
+        }
+    }
+
+    /**
+     * Compares the given block with the last one. The score of a block is its
+     * change degree, and its threshold is the minimum change degree.
+     *
+     * The equivalence classes of a block are counted in the same pass that
+     * compares it with the last one, so that time is measured as distance
+     * computation, except for the first block.
+     */
+    @Override
+    public void process(CategoricalBlock block) {
+        long allocated = metrics.allocatedBytes();
+        long start = metrics.now();
+
+        double changeDegree = Double.NaN;
+        if (lastHistogram == null && lastBlock == null) {
+            startWith(block);
+            metrics.time(Metrics.statisticsTime, metrics.now() - start);
+        } else {
+            changeDegree = changeDegreeAfter(block);
+            metrics.time(Metrics.distanceTime, metrics.now() - start);
+        }
+
+        decide(block, changeDegree, allocated);
+    }
+
+    /**
+     * Blocks are measured by their change degree since the previous block.
+     */
+    @Override
+    public int blocksPerMeasurement() {
+        return 2;
+    }
+
+    @Override
+    public double measure(List<CategoricalBlock> blocks) {
+        if (blocks.size() < 2) {
+            return Double.NaN;
+        }
+
+        // The histograms of a detector change as it counts blocks, so every measurement counts them anew.
+        DriftDetector detector = new DriftDetector(stream, blockSize, minChangeDegree);
+        detector.epsilon = epsilon;
+        detector.delta = delta;
+        return detector.changeDegreeFor(blocks.get(blocks.size() - 2), blocks.get(blocks.size() - 1));
+    }
+
+    @Override
+    public void process(CategoricalBlock block, double changeDegree) {
+        decide(block, changeDegree, metrics.allocatedBytes());
+    }
+
+    @Override
+    public void finish() {
+        notifyListeners(DriftEvent.endOfStream(conceptStart, position));
+    }
+
+    @Override
+    public int nextBlockSize() {
+        return adaptiveBlockSize != null ? adaptiveBlockSize.size() : blockSize;
+    }
+
+    @Override
+    public boolean step() {
+        CategoricalBlock block;
+        long start = System.nanoTime();
         try {
-            ImmutableList<ImmutableList<String>> lastBlock, currentBlock;
+            block = nextBlock(null);
+        } catch (NoSuchElementException e) {
+            finish();
+            return false;
+        }
 
-            lastBlock = stream.head(blockSize);
-            stream.discard(lastBlock.size());
+        long read = System.nanoTime();
+        process(block);
+        adaptBlockSize(null, block, read - start, System.nanoTime() - read);
+        return true;
+    }
 
-            System.out.println("Found concepts:");
+    @Override
+    public void checkpoint(DataOutput out) throws IOException {
+        out.writeInt(conceptStart);
+        out.writeInt(position);
 
-            double changeDegree;
-            while (true) {
-                // Read a block from the stream.
-                currentCount = stream.countSoFar();
-                currentBlock = stream.head(blockSize);
-                stream.discard(currentBlock.size());
-
-                changeDegree = changeDegreeFor(lastBlock, currentBlock);
-                if (changeDegree >= minChangeDegree) {
-                    System.out.println(lastCount + "-" + currentCount);
-                    lastCount = currentCount + 1;
-                }
+        // The histogram of the last block is all that is needed to compare it with the next one, unless the
+        // histogram is approximated.
+        if (epsilon > 0) {
+            out.writeBoolean(lastBlock != null);
+            if (lastBlock != null) {
+                lastBlock.writeTo(out);
+            }
+            return;
+        }
+        out.writeInt(lastHistogram != null ? lastHistogram.numAttributes() : 0);
+        if (lastHistogram != null) {
+            lastHistogram.writeTo(out);
+        }
+    }
+
+    @Override
+    public void restore(DataInput in) throws IOException {
+        conceptStart = in.readInt();
+        position = in.readInt();
 
-                lastBlock = currentBlock;
+        if (epsilon > 0) {
+            lastBlock = null;
+            if (in.readBoolean()) {
+                startWith(CategoricalBlock.readFrom(in));
             }
-        } catch (NoSuchElementException e) {
-            if (currentCount >= lastCount) {
-                System.out.println(lastCount + "-" + currentCount);
+            return;
+        }
+        int numAttributes = in.readInt();
+        if (numAttributes == 0) {
+            lastHistogram = currentHistogram = null;
+        } else {
+            lastHistogram = new BlockHistogram(numAttributes);
+            currentHistogram = new BlockHistogram(numAttributes);
+            lastHistogram.readFrom(in);
+        }
+    }
+
+    @Override
+    public void run() {
+        try (BlockPipeline pipeline = pipelineCapacity > 0 ?
+                new BlockPipeline(stream, nextBlockSize(), pipelineCapacity) : null) {
+            CategoricalBlock block;
+            long start, read;
+            while (true) {
+                start = System.nanoTime();
+                block = nextBlock(pipeline);
+                read = System.nanoTime();
+                process(block);
+                adaptBlockSize(pipeline, block, read - start, System.nanoTime() - read);
             }
-            System.out.println("Done.");
+        } catch (NoSuchElementException e) {
+            finish();
         }
     }
 
-    private final CategoricalRecordStreamReader stream;
+    private final CategoricalStreamReader stream;
     private final int blockSize;
     private final double minChangeDegree;
+    private int pipelineCapacity = 0;
+    private AdaptiveBlockSize adaptiveBlockSize = null;
+    private final List<DriftListener> listeners = new ArrayList<>();
+    private Metrics metrics = Metrics.none;
+
+    // First record of the current concept, and number of records processed so far.
+    private int conceptStart = 0, position = 0;
+
+    // Equivalence classes of the last block, and of the one that is compared to it.
+    private BlockHistogram lastHistogram, currentHistogram;
+
+    // Approximate sizes of the same equivalence classes for every attribute, along with the last block itself.
+    private double epsilon = 0, delta = 0;
+    private CountMinSketch[] lastSketches, currentSketches;
+    private CategoricalBlock lastBlock;
+
+    /**
+     * Compares the change degree of the block, unless it is the first one, with
+     * the minimum change degree, and notifies listeners of the result.
+     */
+    private void decide(CategoricalBlock block, double changeDegree, long allocated) {
+        long start = metrics.now();
+        DriftEvent event = null;
+        if (!Double.isNaN(changeDegree)) {
+            event = DriftEvent.block(conceptStart, position, changeDegree, minChangeDegree);
+            if (event.isDrift()) {
+                conceptStart = position + 1;
+            }
+            metrics.time(Metrics.decisionTime, metrics.now() - start);
+        }
+
+        position = block.offset() + block.size();
+        metrics.gauge(Metrics.blockSize, block.size());
+        metrics.gauge(Metrics.allocatedBytesPerBlock, metrics.allocatedBytes() - allocated);
 
-    private double changeDegreeFor(ImmutableList<ImmutableList<String>> firstBlock,
-                                   ImmutableList<ImmutableList<String>> secondBlock) {
-        if (firstBlock.size() == 0 || secondBlock.size() == 0) {
+        // Listeners are notified once the block is processed, so that they can checkpoint the detector.
+        if (event != null) {
+            notifyListeners(event);
+        }
+    }
+
+    private CategoricalBlock nextBlock(BlockPipeline pipeline) throws NoSuchElementException {
+        if (pipeline != null) {
+            return pipeline.next();
+        }
+
+        CategoricalBlock block = stream.block(nextBlockSize());
+        stream.discard(block.size());
+        return block;
+    }
+
+    private void adaptBlockSize(BlockPipeline pipeline, CategoricalBlock block, long arrivalTime, long processingTime) {
+        if (adaptiveBlockSize == null) {
+            return;
+        }
+
+        adaptiveBlockSize.update(block.size(), arrivalTime, processingTime);
+        if (pipeline != null) {
+            pipeline.setBlockSize(adaptiveBlockSize.size());
+        }
+    }
+
+    private void notifyListeners(DriftEvent event) {
+        if (!event.isEndOfStream()) {
+            metrics.count(Metrics.events, 1);
+            metrics.count(Metrics.drifts, event.isDrift() ? 1 : 0);
+        }
+
+        for (DriftListener listener : listeners) {
+            listener.onEvent(event);
+        }
+    }
+
+    double changeDegreeFor(CategoricalBlock firstBlock, CategoricalBlock secondBlock) {
+        startWith(firstBlock);
+        return changeDegreeAfter(secondBlock);
+    }
+
+    private void startWith(CategoricalBlock block) {
+        if (block.size() == 0) {
             throw new IllegalArgumentException("Blocks should not be empty.");
         }
 
-        int numAttributes = firstBlock.get(0).size();
-        if (secondBlock.get(0).size() != numAttributes) {
+        if (epsilon > 0) {
+            if (lastSketches == null || lastSketches.length != block.numAttributes()) {
+                lastSketches = new CountMinSketch[block.numAttributes()];
+                currentSketches = new CountMinSketch[block.numAttributes()];
+                for (int i = 0; i < block.numAttributes(); i++) {
+                    lastSketches[i] = CountMinSketch.withErrorBudget(epsilon, delta, i);
+                    currentSketches[i] = CountMinSketch.withErrorBudget(epsilon, delta, i);
+                }
+            }
+            count(block, lastSketches);
+            lastBlock = block;
+            return;
+        }
+
+        if (lastHistogram == null || lastHistogram.numAttributes() != block.numAttributes()) {
+            lastHistogram = new BlockHistogram(block.numAttributes());
+            currentHistogram = new BlockHistogram(block.numAttributes());
+        }
+        lastHistogram.count(block);
+    }
+
+    /**
+     * Calculates change degree between the last block and the given block, which
+     * then becomes the last block. Equivalence classes of the given block are
+     * counted in the same pass that calculates the approximations, and are kept
+     * for comparing it with the next block.
+     */
+    private double changeDegreeAfter(CategoricalBlock block) {
+        if (block.size() == 0) {
+            throw new IllegalArgumentException("Blocks should not be empty.");
+        }
+
+        if (epsilon > 0) {
+            return approximateChangeDegreeAfter(block);
+        }
+
+        int numAttributes = lastHistogram.numAttributes();
+        if (block.numAttributes() != numAttributes) {
             throw new IllegalArgumentException("Number of features should match.");
         }
 
         double totalNewConceptEmergingDegree = 0;
         double totalOldConceptFadingDegree = 0;
 
-        Map<String, Integer> firstEquivalents = new HashMap<>();
-        Map<String, Integer> secondEquivalents = new HashMap<>();
-
-        int firstCount, secondCount;
+        int[] values;
+        int value, firstCount, secondCount;
         double firstLowerApprox, firstUpperApprox, secondLowerApprox, secondUpperApprox;
 
-        for (int attribute = 0; attribute < numAttributes; attribute++) {
-            firstEquivalents.clear();
-            secondEquivalents.clear();
+        currentHistogram.reset(block.size());
 
-            // Calculate size of each equivalent class for the first block.
-            for (ImmutableList<String> record : firstBlock) {
-                String value = record.get(attribute);
-                firstEquivalents.put(value, firstEquivalents.getOrDefault(value, 0) + 1);
-            }
+        for (int attribute = 0; attribute < numAttributes; attribute++) {
+            currentHistogram.ensureCapacity(attribute, block.domainSize(attribute));
+            values = block.column(attribute);
 
-            // Calculate size of each equivalent class for the second block.
-            for (ImmutableList<String> record : secondBlock) {
-                String value = record.get(attribute);
-                secondEquivalents.put(value, secondEquivalents.getOrDefault(value, 0) + 1);
-            }
+            // Before any record of the second block is seen, all records of the first block are in its lower
+            // approximation. Each value moves its class to the upper approximations the first time it is seen.
+            firstLowerApprox = lastHistogram.numRecords();
+            firstUpperApprox = secondLowerApprox = secondUpperApprox = 0;
 
-            // Calculate the lower and upper approximations of the blocks for `attribute`.
-            firstLowerApprox = firstUpperApprox = secondLowerApprox = secondUpperApprox = 0;
-            for (String value : Sets.union(firstEquivalents.keySet(), secondEquivalents.keySet())) {
-                firstCount = firstEquivalents.getOrDefault(value, 0);
-                secondCount = secondEquivalents.getOrDefault(value, 0);
+            for (int i = 0; i < block.size(); i++) {
+                value = values[i];
+                secondCount = currentHistogram.increment(attribute, value);
+                firstCount = lastHistogram.countOf(attribute, value);
 
                 if (firstCount > 0) {
-                    if (secondCount > 0) {
+                    if (secondCount == 1) {
+                        firstLowerApprox -= firstCount;
                         firstUpperApprox += firstCount;
-                        secondUpperApprox += secondCount;
-                    } else {
-                        firstLowerApprox += firstCount;
                     }
-                } else if (secondCount > 0) {
-                    secondLowerApprox += secondCount;
+                    secondUpperApprox++;
+                } else {
+                    secondLowerApprox++;
                 }
             }
 
@@ -138,8 +419,72 @@ public class DriftDetector {
             totalNewConceptEmergingDegree += (secondLowerApprox / secondUpperApprox);
         }
 
+        // The current block is the last block for the next comparison.
+        BlockHistogram histogram = lastHistogram;
+        lastHistogram = currentHistogram;
+        currentHistogram = histogram;
+
         // Calculate and return change degree.
         return (totalNewConceptEmergingDegree + totalOldConceptFadingDegree) / (2 * numAttributes);
     }
 
+    /**
+     * Calculates change degree like `changeDegreeAfter`, from sketches of the
+     * blocks. Lower approximations of a block are the records whose values do not
+     * occur in the other block, and the rest are in its upper approximations.
+     */
+    private double approximateChangeDegreeAfter(CategoricalBlock block) {
+        int numAttributes = lastBlock.numAttributes();
+        if (block.numAttributes() != numAttributes) {
+            throw new IllegalArgumentException("Number of features should match.");
+        }
+
+        count(block, currentSketches);
+
+        double totalNewConceptEmergingDegree = 0;
+        double totalOldConceptFadingDegree = 0;
+        double firstLowerApprox, secondLowerApprox;
+
+        for (int attribute = 0; attribute < numAttributes; attribute++) {
+            firstLowerApprox = numMissing(lastBlock, attribute, currentSketches[attribute]);
+            secondLowerApprox = numMissing(block, attribute, lastSketches[attribute]);
+
+            totalOldConceptFadingDegree += firstLowerApprox / (lastBlock.size() - firstLowerApprox);
+            totalNewConceptEmergingDegree += secondLowerApprox / (block.size() - secondLowerApprox);
+        }
+
+        CountMinSketch[] sketches = lastSketches;
+        lastSketches = currentSketches;
+        currentSketches = sketches;
+        lastBlock = block;
+
+        return (totalNewConceptEmergingDegree + totalOldConceptFadingDegree) / (2 * numAttributes);
+    }
+
+    private void count(CategoricalBlock block, CountMinSketch[] sketches) {
+        int[] values;
+        for (int attribute = 0; attribute < block.numAttributes(); attribute++) {
+            sketches[attribute].clear();
+            values = block.column(attribute);
+            for (int i = 0; i < block.size(); i++) {
+                sketches[attribute].add(values[i], 1);
+            }
+        }
+    }
+
+    /**
+     * Number of records of the block whose value of the attribute is estimated
+     * not to occur in the sketched block.
+     */
+    private int numMissing(CategoricalBlock block, int attribute, CountMinSketch sketch) {
+        int[] values = block.column(attribute);
+        int numMissing = 0;
+        for (int i = 0; i < block.size(); i++) {
+            if (sketch.estimate(values[i]) == 0) {
+                numMissing++;
+            }
+        }
+        return numMissing;
+    }
+
 }
@@ -0,0 +1,135 @@
+/*
+ *      DataStreamReader/BlockPipeline.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DataStreamReader;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+
+/**
+ * Reads consecutive blocks of a stream on a background thread, so that parsing
+ * of the next blocks overlaps with processing of the current one.
+ *
+ * At most `capacity` blocks are read ahead; the reading thread waits while the
+ * queue is full. Once a pipeline is created, the stream must not be used by any
+ * other thread until the pipeline is closed.
+ */
+public final class BlockPipeline implements AutoCloseable {
+
+    /*--------------------------------------------------------------------------*
+     *                        STATIC MEMBERS AND METHODS                        *
+     *--------------------------------------------------------------------------*/
+
+    private static final CategoricalBlock endOfStream = new CategoricalBlock(0, 0, new int[0][], new int[0]);
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    public BlockPipeline(CategoricalStreamReader stream, int blockSize, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity should be positive.");
+        }
+
+        this.stream = stream;
+        this.blockSize = blockSize;
+        this.blocks = new ArrayBlockingQueue<>(capacity);
+
+        this.reader = new Thread(this::read, "BlockPipeline reader");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    /**
+     * Returns the next block of the stream, waiting for it to be read if needed.
+     */
+    public CategoricalBlock next() throws NoSuchElementException {
+        if (finished) {
+            throw new NoSuchElementException();
+        }
+
+        CategoricalBlock block;
+        try {
+            block = blocks.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the next block.", e);
+        }
+
+        if (block == endOfStream) {
+            finished = true;
+            if (failure != null) {
+                throw new IllegalStateException("Failed to read the stream.", failure);
+            }
+            throw new NoSuchElementException();
+        }
+
+        return block;
+    }
+
+    /**
+     * Changes the size of the blocks read from now on. Blocks already read ahead
+     * keep their size.
+     */
+    public void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public void close() {
+        finished = true;
+        reader.interrupt();
+    }
+
+    private final CategoricalStreamReader stream;
+    private volatile int blockSize;
+    private final BlockingQueue<CategoricalBlock> blocks;
+    private final Thread reader;
+    private volatile Throwable failure = null;
+    private boolean finished = false;
+
+    private void read() {
+        CategoricalBlock block;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                block = stream.block(blockSize);
+                stream.discard(block.size());
+                blocks.put(block);
+            }
+            return;
+        } catch (NoSuchElementException e) {
+            // Reached the end of the stream.
+        } catch (InterruptedException e) {
+            // The pipeline is closed.
+            return;
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        }
+
+        try {
+            blocks.put(endOfStream);
+        } catch (InterruptedException e) {
+            // The pipeline is closed.
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ *      DataStreamReader/CategoricalBlock.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DataStreamReader;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+
+/**
+ * A block of consecutive categorical records stored column by column.
+ *
+ * Every value is the code assigned to it by the stream's
+ * {@link CategoricalDictionary}, so values of the same attribute can be compared
+ * across blocks of the same stream.
+ */
+public final class CategoricalBlock {
+
+    /*--------------------------------------------------------------------------*
+     *                        STATIC MEMBERS AND METHODS                        *
+     *--------------------------------------------------------------------------*/
+
+    /**
+     * Reads a block written by `writeTo`.
+     */
+    public static CategoricalBlock readFrom(DataInput in) throws IOException {
+        int offset = in.readInt();
+        int size = in.readInt();
+        int numAttributes = in.readInt();
+
+        int[] domainSizes = new int[numAttributes];
+        int[][] columns = new int[numAttributes][size];
+        for (int i = 0; i < numAttributes; i++) {
+            domainSizes[i] = in.readInt();
+            for (int j = 0; j < size; j++) {
+                columns[i][j] = in.readInt();
+            }
+        }
+
+        return new CategoricalBlock(offset, size, columns, domainSizes);
+    }
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    /**
+     * Index of the first record of this block in the stream.
+     */
+    public int offset() {
+        return offset;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int numAttributes() {
+        return columns.length;
+    }
+
+    /**
+     * Value codes of the given attribute, one per record. The returned array is
+     * not copied and must not be modified; only its first `size()` entries
+     * are meaningful.
+     */
+    public int[] column(int attributeIndex) {
+        return columns[attributeIndex];
+    }
+
+    public int valueAt(int recordIndex, int attributeIndex) {
+        return columns[attributeIndex][recordIndex];
+    }
+
+    /**
+     * Number of codes the dictionary had assigned to the given attribute when
+     * this block was read. Every code in the block is less than this value.
+     */
+    public int domainSize(int attributeIndex) {
+        return domainSizes[attributeIndex];
+    }
+
+    /**
+     * Creates a block of the same records whose values are replaced by the given
+     * ones, e.g. to map values to a smaller domain.
+     */
+    public CategoricalBlock withValues(int[][] columns, int[] domainSizes) {
+        if (columns.length != domainSizes.length) {
+            throw new IllegalArgumentException("Number of columns and domain sizes should match.");
+        }
+        for (int[] column : columns) {
+            if (column.length < size) {
+                throw new IllegalArgumentException("Columns should have a value for every record.");
+            }
+        }
+
+        return new CategoricalBlock(offset, size, columns, domainSizes);
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(offset);
+        out.writeInt(size);
+        out.writeInt(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            out.writeInt(domainSizes[i]);
+            for (int j = 0; j < size; j++) {
+                out.writeInt(columns[i][j]);
+            }
+        }
+    }
+
+    CategoricalBlock(int offset, int size, int[][] columns, int[] domainSizes) {
+        this.offset = offset;
+        this.size = size;
+        this.columns = columns;
+        this.domainSizes = domainSizes;
+    }
+
+    private final int offset;
+    private final int size;
+    private final int[][] columns;
+    private final int[] domainSizes;
+
+}
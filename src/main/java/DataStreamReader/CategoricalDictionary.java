@@ -0,0 +1,150 @@
+/*
+ *      DataStreamReader/CategoricalDictionary.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DataStreamReader;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Maps the values of every attribute to dense integer codes.
+ *
+ * Codes are assigned in order of first appearance, starting from zero, and stay
+ * valid for the whole life of the dictionary.
+ */
+public final class CategoricalDictionary {
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    public int encode(int attributeIndex, String value) {
+        while (attributeIndex >= codes.size()) {
+            codes.add(new HashMap<>());
+            values.add(new ArrayList<>());
+            utf8Indexes.add(new Utf8ValueIndex());
+        }
+
+        Map<String, Integer> attributeCodes = codes.get(attributeIndex);
+        Integer code = attributeCodes.get(value);
+        if (code == null) {
+            List<String> attributeValues = values.get(attributeIndex);
+            code = attributeValues.size();
+            attributeCodes.put(value, code);
+            attributeValues.add(value);
+        }
+        return code;
+    }
+
+    /**
+     * Encodes a UTF-8 encoded value. A string is only created for the value the
+     * first time it is seen.
+     */
+    public int encode(int attributeIndex, byte[] bytes, int offset, int length) {
+        int hash = Utf8ValueIndex.hash(bytes, offset, length);
+        int code = attributeIndex < utf8Indexes.size() ?
+                utf8Indexes.get(attributeIndex).find(bytes, offset, length, hash) : -1;
+
+        if (code == -1) {
+            code = encode(attributeIndex, new String(bytes, offset, length, StandardCharsets.UTF_8));
+            utf8Indexes.get(attributeIndex).insert(bytes, offset, length, hash, code);
+        }
+        return code;
+    }
+
+    public String decode(int attributeIndex, int code) {
+        return values.get(attributeIndex).get(code);
+    }
+
+    /**
+     * Encodes every value of another dictionary, in the order of their codes,
+     * and returns their codes in this dictionary for every attribute, indexed
+     * by their codes in the other one.
+     */
+    public int[][] encodeAll(CategoricalDictionary dictionary) {
+        int[][] codes = new int[dictionary.numAttributes()][];
+        for (int attribute = 0; attribute < codes.length; attribute++) {
+            codes[attribute] = new int[dictionary.domainSize(attribute)];
+            for (int code = 0; code < codes[attribute].length; code++) {
+                codes[attribute][code] = encode(attribute, dictionary.decode(attribute, code));
+            }
+        }
+        return codes;
+    }
+
+    public int numAttributes() {
+        return codes.size();
+    }
+
+    public int domainSize(int attributeIndex) {
+        return attributeIndex < values.size() ? values.get(attributeIndex).size() : 0;
+    }
+
+    /**
+     * Writes the values of every attribute in the order of their codes.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        byte[] bytes;
+
+        out.writeInt(values.size());
+        for (List<String> attributeValues : values) {
+            out.writeInt(attributeValues.size());
+            for (String value : attributeValues) {
+                bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Reads values written by `writeTo` into this dictionary, which should be
+     * empty, so that they get the same codes as before.
+     */
+    public void readFrom(DataInput in) throws IOException {
+        if (!codes.isEmpty()) {
+            throw new IllegalStateException("Dictionary is not empty.");
+        }
+
+        int numAttributes = in.readInt();
+        int domainSize;
+        byte[] bytes;
+        for (int attribute = 0; attribute < numAttributes; attribute++) {
+            domainSize = in.readInt();
+            for (int code = 0; code < domainSize; code++) {
+                bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                encode(attribute, new String(bytes, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private final List<Map<String, Integer>> codes = new ArrayList<>();
+    private final List<List<String>> values = new ArrayList<>();
+    private final List<Utf8ValueIndex> utf8Indexes = new ArrayList<>();
+
+}
@@ -20,19 +20,59 @@
 
 package DataStreamReader;
 
+import java.io.BufferedReader;
+import java.io.DataInput;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.NoSuchElementException;
-
-import com.google.common.collect.ImmutableList;
 
 import org.apache.commons.csv.*;
 
 
 
-public final class CategoricalRecordStreamReader extends DataStreamReader<ImmutableList<String>> {
+public final class CategoricalRecordStreamReader extends CategoricalStreamReader {
+
+    /*--------------------------------------------------------------------------*
+     *                        STATIC MEMBERS AND METHODS                        *
+     *--------------------------------------------------------------------------*/
+
+    /**
+     * Creates a reader that continues from a checkpoint of a reader of the same
+     * file. Characters before the position of the checkpoint are decoded but not
+     * parsed.
+     */
+    public static CategoricalRecordStreamReader resume(String path, DataInput in) throws IOException {
+        long characterPosition = in.readLong();
+        CategoricalRecordStreamReader reader;
+
+        if (characterPosition == -1) {
+            reader = new CategoricalRecordStreamReader(Collections.emptyIterator());
+        } else {
+            Reader fileReader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(path), StandardCharsets.UTF_8));
+            long skipped = 0;
+            while (skipped < characterPosition) {
+                long size = fileReader.skip(characterPosition - skipped);
+                if (size <= 0) {
+                    fileReader.close();
+                    throw new IllegalStateException("File is shorter than the checkpoint.");
+                }
+                skipped += size;
+            }
+
+            CSVParser parser = new CSVParser(fileReader, CSVFormat.RFC4180, characterPosition, 1);
+            reader = new CategoricalRecordStreamReader(parser.iterator());
+        }
+
+        reader.restore(in);
+        return reader;
+    }
 
     /*--------------------------------------------------------------------------*
      *                       INSTANCE MEMBERS AND METHODS                       *
@@ -40,8 +80,7 @@ public final class CategoricalRecordStreamReader extends DataStreamReader<Immuta
 
     // TODO: Add support for all CSV file formats.
     public CategoricalRecordStreamReader(String path, boolean hasHeader) throws IOException {
-        CSVParser parser = CSVParser.parse(new File(path), Charset.forName("UTF-8"), CSVFormat.RFC4180);
-        this.csvRecords = parser.iterator();
+        this(CSVParser.parse(new File(path), Charset.forName("UTF-8"), CSVFormat.RFC4180).iterator());
 
         if (hasHeader) {
             skipLines(1);
@@ -49,44 +88,51 @@ public final class CategoricalRecordStreamReader extends DataStreamReader<Immuta
     }
 
     @Override
-    protected void expandHeadTo(int maxSize) throws NoSuchElementException {
-        if (head != null && head.size() >= maxSize) {
-            // Head is already big enough.
-            return;
-        }
-
-        ImmutableList.Builder<ImmutableList<String>> headBuilder = ImmutableList.builder();
-
-        if (head != null) {
-            headBuilder.addAll(head);
-            maxSize -= head.size();
+    protected int[] readRecord() {
+        CSVRecord csvRecord = nextRecord();
+        if (csvRecord == null) {
+            return null;
         }
 
-        for (int size = 0; size < maxSize && csvRecords.hasNext(); size++) {
-            ImmutableList.Builder<String> recordBuilder = ImmutableList.builder();
-            for (String value : csvRecords.next()) {
-                recordBuilder.add(value);
-            }
-            headBuilder.add(recordBuilder.build());
-            countSoFar++;
-        }
-
-        head = headBuilder.build();
+        checkNumAttributes(csvRecord.size());
 
-        if (head.size() == 0) {
-            throw new NoSuchElementException();
+        // Encode values as soon as they are read, so that they are hashed only once.
+        int[] record = new int[csvRecord.size()];
+        for (int i = 0; i < record.length; i++) {
+            record[i] = dictionary.encode(i, csvRecord.get(i));
         }
+        return record;
     }
 
     @Override
     protected void skipLines(int maxSize) {
         // Skip `maxSize` records.
-        for (int size = 0; size < maxSize && csvRecords.hasNext(); size++) {
-            csvRecords.next();
+        for (int size = 0; size < maxSize && nextRecord() != null; size++) {
             countSoFar++;
         }
     }
 
+    @Override
+    protected long resumePosition() {
+        return upcomingRecord != null ? upcomingRecord.getCharacterPosition() : -1;
+    }
+
     private final Iterator<CSVRecord> csvRecords;
 
+    // The record after the last one read, whose position is where a checkpoint resumes.
+    private CSVRecord upcomingRecord;
+
+    private CategoricalRecordStreamReader(Iterator<CSVRecord> csvRecords) {
+        this.csvRecords = csvRecords;
+        this.upcomingRecord = csvRecords.hasNext() ? csvRecords.next() : null;
+    }
+
+    private CSVRecord nextRecord() {
+        CSVRecord csvRecord = upcomingRecord;
+        if (csvRecord != null) {
+            upcomingRecord = csvRecords.hasNext() ? csvRecords.next() : null;
+        }
+        return csvRecord;
+    }
+
 }
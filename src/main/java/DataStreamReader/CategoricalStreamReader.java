@@ -0,0 +1,172 @@
+/*
+ *      DataStreamReader/CategoricalStreamReader.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DataStreamReader;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+import DriftDetection.Metrics;
+
+
+/**
+ * A stream of categorical records whose values are encoded by a dictionary that
+ * lives as long as the stream.
+ */
+public abstract class CategoricalStreamReader extends DataStreamReader<int[]> {
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    /**
+     * Returns at most `maxSize` records from the head of the stream as a columnar
+     * block, without discarding them.
+     */
+    public CategoricalBlock block(int maxSize) throws NoSuchElementException {
+        expandHeadTo(maxSize);
+        int size = Math.min(maxSize, headSize());
+        int numAttributes = peek(0).length;
+
+        int[][] columns = new int[numAttributes][size];
+        int[] record;
+        for (int i = 0; i < size; i++) {
+            record = peek(i);
+            for (int j = 0; j < numAttributes; j++) {
+                columns[j][i] = record[j];
+            }
+        }
+
+        int[] domainSizes = new int[numAttributes];
+        int dictionarySize = 0;
+        for (int j = 0; j < numAttributes; j++) {
+            domainSizes[j] = dictionary.domainSize(j);
+            dictionarySize += domainSizes[j];
+        }
+        metrics.gauge(Metrics.dictionarySize, dictionarySize);
+
+        return new CategoricalBlock(countSoFar - headSize(), size, columns, domainSizes);
+    }
+
+    /**
+     * Makes the reader report the records it parses, the time it takes, and the
+     * size of its dictionary to the given metrics. Defaults to `Metrics.none`.
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public CategoricalDictionary dictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Writes the position of the stream, its dictionary and the records in its
+     * head, from which the reader's `resume` factory creates a reader that
+     * continues from the same record. Records read ahead by a pipeline are not
+     * included.
+     */
+    public void checkpoint(DataOutput out) throws IOException {
+        out.writeLong(resumePosition());
+        out.writeInt(countSoFar);
+        out.writeInt(numAttributes);
+        dictionary.writeTo(out);
+
+        out.writeInt(headSize());
+        for (int i = 0; i < headSize(); i++) {
+            for (int code : peek(i)) {
+                out.writeInt(code);
+            }
+        }
+    }
+
+    protected final CategoricalDictionary dictionary = new CategoricalDictionary();
+
+    /**
+     * Position in the source of the first record that has not been read, as
+     * written first by `checkpoint`, or -1 if the source has been read entirely.
+     */
+    protected abstract long resumePosition();
+
+    /**
+     * Restores the rest of a checkpoint, once the reader has been positioned at
+     * the position it starts with.
+     */
+    protected void restore(DataInput in) throws IOException {
+        countSoFar = in.readInt();
+        numAttributes = in.readInt();
+        dictionary.readFrom(in);
+
+        int headSize = in.readInt();
+        int[] record;
+        for (int i = 0; i < headSize; i++) {
+            record = new int[numAttributes];
+            for (int j = 0; j < numAttributes; j++) {
+                record[j] = in.readInt();
+            }
+            append(record);
+        }
+    }
+
+    @Override
+    protected void expandHeadTo(int maxSize) throws NoSuchElementException {
+        int[] record;
+        int numParsed = 0;
+        long start = metrics.now();
+        while (headSize() < maxSize && (record = readRecord()) != null) {
+            append(record);
+            countSoFar++;
+            numParsed++;
+        }
+
+        if (numParsed > 0) {
+            metrics.count(Metrics.recordsParsed, numParsed);
+            metrics.time(Metrics.parseTime, metrics.now() - start);
+        }
+
+        if (headSize() == 0) {
+            throw new NoSuchElementException();
+        }
+    }
+
+    /**
+     * Reads and encodes the next record, or returns `null` at the end of the
+     * stream.
+     */
+    protected abstract int[] readRecord();
+
+    /**
+     * Checks that the current record has as many attributes as the first one.
+     */
+    protected void checkNumAttributes(int recordNumAttributes) {
+        if (numAttributes == -1) {
+            numAttributes = recordNumAttributes;
+        } else if (recordNumAttributes != numAttributes) {
+            throw new IllegalStateException("Record " + countSoFar + " has " + recordNumAttributes +
+                    " attributes instead of " + numAttributes + ".");
+        }
+    }
+
+    private int numAttributes = -1;
+    private Metrics metrics = Metrics.none;
+
+}
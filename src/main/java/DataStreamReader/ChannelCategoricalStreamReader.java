@@ -0,0 +1,220 @@
+/*
+ *      DataStreamReader/ChannelCategoricalStreamReader.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DataStreamReader;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+
+
+/**
+ * Reads UTF-8 encoded RFC 4180 CSV records from bytes that are pushed to it as
+ * they arrive, e.g. from a socket or a pipe.
+ *
+ * Bytes are tokenized one at a time, so records and fields may be split
+ * anywhere between the buffers fed to the reader. Fields are resolved to their
+ * codes from their bytes as soon as they end, as in
+ * {@link MappedCategoricalStreamReader}. Complete records wait in the reader
+ * until they are read into the head, which only returns the records that have
+ * arrived so far; `numAvailable` tells whether a block is complete.
+ */
+public final class ChannelCategoricalStreamReader extends CategoricalStreamReader {
+
+    /*--------------------------------------------------------------------------*
+     *                        STATIC MEMBERS AND METHODS                        *
+     *--------------------------------------------------------------------------*/
+
+    // States of the tokenizer between two bytes.
+    private static final int recordStart = 0;
+    private static final int fieldStart = 1;
+    private static final int plainField = 2;
+    private static final int quotedField = 3;
+    private static final int quoteInQuotedField = 4;
+    private static final int afterCarriageReturn = 5;
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    public ChannelCategoricalStreamReader(boolean hasHeader) {
+        this.skippingHeader = hasHeader;
+    }
+
+    /**
+     * Parses the remaining bytes of the buffer, and advances its position to its
+     * limit. A record that is cut off continues with the next bytes fed.
+     */
+    public void feed(ByteBuffer bytes) {
+        if (ended) {
+            throw new IllegalStateException("Input has ended.");
+        }
+
+        int limit = bytes.limit();
+        for (int i = bytes.position(); i < limit; i++) {
+            accept(bytes.get(i));
+        }
+        bytes.position(limit);
+    }
+
+    /**
+     * Marks the end of the input, which ends the last record if it is not
+     * followed by a line break.
+     */
+    public void endOfInput() {
+        if (ended) {
+            return;
+        }
+
+        if (state != recordStart && state != afterCarriageReturn) {
+            endField();
+            endRecord();
+        }
+        state = recordStart;
+        ended = true;
+    }
+
+    public boolean hasEnded() {
+        return ended;
+    }
+
+    /**
+     * Number of complete records that have not been discarded.
+     */
+    public int numAvailable() {
+        return headSize() + records.size();
+    }
+
+    @Override
+    protected int[] readRecord() {
+        int[] record = records.poll();
+        if (record != null) {
+            checkNumAttributes(record.length);
+        }
+        return record;
+    }
+
+    @Override
+    protected void skipLines(int maxSize) {
+        // Skip `maxSize` records.
+        for (int size = 0; size < maxSize && records.poll() != null; size++) {
+            countSoFar++;
+        }
+    }
+
+    /**
+     * Bytes pushed to the reader cannot be read again, so it cannot be resumed
+     * from a checkpoint.
+     */
+    @Override
+    protected long resumePosition() {
+        throw new UnsupportedOperationException("Readers of pushed bytes cannot be checkpointed.");
+    }
+
+    private final Queue<int[]> records = new ArrayDeque<>();
+    private boolean skippingHeader;
+    private boolean ended = false;
+
+    private int state = recordStart;
+    private int numFields = 0;
+    private int[] fieldCodes = new int[16];
+    private int fieldSize = 0;
+    private byte[] fieldBytes = new byte[64];
+
+    private void accept(byte value) {
+        if (state == afterCarriageReturn) {
+            state = recordStart;
+            if (value == '\n') {
+                return;
+            }
+        }
+        if (state == recordStart) {
+            numFields = 0;
+            state = fieldStart;
+        }
+        if (state == fieldStart) {
+            fieldSize = 0;
+            if (value == '"') {
+                state = quotedField;
+                return;
+            }
+            state = plainField;
+        }
+
+        // Pairs of quotes in an encapsulated value stand for one quote.
+        if (state == quotedField) {
+            if (value == '"') {
+                state = quoteInQuotedField;
+            } else {
+                append(value);
+            }
+            return;
+        }
+        if (state == quoteInQuotedField) {
+            if (value == '"') {
+                append(value);
+                state = quotedField;
+                return;
+            }
+            // Whatever follows the closing quote up to the delimiter is part of the value.
+            state = plainField;
+        }
+
+        if (value == ',') {
+            endField();
+            state = fieldStart;
+        } else if (value == '\n' || value == '\r') {
+            endField();
+            endRecord();
+            state = value == '\r' ? afterCarriageReturn : recordStart;
+        } else {
+            append(value);
+        }
+    }
+
+    private void append(byte value) {
+        if (fieldSize == fieldBytes.length) {
+            fieldBytes = Arrays.copyOf(fieldBytes, 2 * fieldBytes.length);
+        }
+        fieldBytes[fieldSize] = value;
+        fieldSize++;
+    }
+
+    private void endField() {
+        // Values of the header are not encoded, so that they do not take codes.
+        if (!skippingHeader) {
+            if (numFields == fieldCodes.length) {
+                fieldCodes = Arrays.copyOf(fieldCodes, 2 * fieldCodes.length);
+            }
+            fieldCodes[numFields] = dictionary.encode(numFields, fieldBytes, 0, fieldSize);
+        }
+        numFields++;
+    }
+
+    private void endRecord() {
+        if (skippingHeader) {
+            skippingHeader = false;
+            return;
+        }
+        records.add(Arrays.copyOf(fieldCodes, numFields));
+    }
+
+}
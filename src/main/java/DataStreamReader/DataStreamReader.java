@@ -20,33 +20,51 @@
 
 package DataStreamReader;
 
-import com.google.common.collect.ImmutableList;
-
+import java.util.AbstractList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.RandomAccess;
 
 
+/**
+ * A stream of records whose head, the records that have been read but not yet
+ * discarded, is kept in a ring buffer. Expanding and discarding the head never
+ * copies the records that stay in it.
+ */
 abstract class DataStreamReader<Type> {
 
     /*--------------------------------------------------------------------------*
      *                       INSTANCE MEMBERS AND METHODS                       *
      *--------------------------------------------------------------------------*/
 
-    public ImmutableList<Type> head(int maxSize) throws NoSuchElementException {
+    /**
+     * Returns a view of at most `maxSize` records from the head of the stream.
+     * The view is only valid until records are next discarded.
+     */
+    public List<Type> head(int maxSize) throws NoSuchElementException {
         expandHeadTo(maxSize);
-        return head.subList(0, maxSize <= head.size() ? maxSize : head.size());
+        return new HeadView(maxSize <= headSize ? maxSize : headSize);
+    }
+
+    /**
+     * Returns the record at the given index of the head, without expanding it.
+     */
+    public Type peek(int index) {
+        if (index < 0 || index >= headSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Head size: " + headSize);
+        }
+        return recordAt(index);
     }
 
     public void discard(int maxSize) {
-        int headSize = head != null ? head.size() : 0;
         int skipSize;
 
         if (maxSize < headSize) {
-            head = ImmutableList.<Type>builder()
-                    .addAll(head.subList(maxSize, headSize))
-                    .build();
+            release(maxSize);
         } else {
-            head = null;
             skipSize = maxSize - headSize;
+            release(headSize);
             if (skipSize > 0) {
                 System.out.println("Skipping " + skipSize + " lines without processing.");
                 skipLines(skipSize);
@@ -58,10 +76,77 @@ abstract class DataStreamReader<Type> {
         return countSoFar;
     }
 
-    protected ImmutableList<Type> head;
     protected int countSoFar = 0;
 
     protected abstract void expandHeadTo(int maxSize) throws NoSuchElementException;
     protected abstract void skipLines(int maxSize);
 
+    protected int headSize() {
+        return headSize;
+    }
+
+    /**
+     * Adds a record to the end of the head.
+     */
+    protected void append(Type record) {
+        if (headSize == ring.length) {
+            // Unroll the ring into a buffer twice as big.
+            Object[] newRing = new Object[2 * ring.length];
+            for (int i = 0; i < headSize; i++) {
+                newRing[i] = ring[(headStart + i) & (ring.length - 1)];
+            }
+            ring = newRing;
+            headStart = 0;
+        }
+
+        ring[(headStart + headSize) & (ring.length - 1)] = record;
+        headSize++;
+    }
+
+    private Object[] ring = new Object[16];
+    private int headStart = 0;
+    private int headSize = 0;
+    private int discardCount = 0;
+
+    @SuppressWarnings("unchecked")
+    private Type recordAt(int index) {
+        return (Type) ring[(headStart + index) & (ring.length - 1)];
+    }
+
+    private void release(int size) {
+        for (int i = 0; i < size; i++) {
+            ring[(headStart + i) & (ring.length - 1)] = null;
+        }
+        headStart = (headStart + size) & (ring.length - 1);
+        headSize -= size;
+        discardCount++;
+    }
+
+    private final class HeadView extends AbstractList<Type> implements RandomAccess {
+
+        @Override
+        public Type get(int index) {
+            if (expectedDiscardCount != discardCount) {
+                throw new ConcurrentModificationException("Records were discarded after this view was created.");
+            }
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return recordAt(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        private final int size;
+        private final int expectedDiscardCount = discardCount;
+
+        private HeadView(int size) {
+            this.size = size;
+        }
+
+    }
+
 }
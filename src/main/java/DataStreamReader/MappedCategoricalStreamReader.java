@@ -0,0 +1,267 @@
+/*
+ *      DataStreamReader/MappedCategoricalStreamReader.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DataStreamReader;
+
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+
+/**
+ * Reads UTF-8 encoded RFC 4180 CSV files by memory-mapping them and tokenizing
+ * fields directly from the mapped bytes.
+ *
+ * Fields are resolved to their codes from their bytes, so no string is created
+ * for a value that has been seen before. Files larger than the mapping size are
+ * mapped one region at a time.
+ */
+public final class MappedCategoricalStreamReader extends CategoricalStreamReader implements Closeable {
+
+    /*--------------------------------------------------------------------------*
+     *                        STATIC MEMBERS AND METHODS                        *
+     *--------------------------------------------------------------------------*/
+
+    private static final int defaultMappingSize = 1 << 30;
+
+    /**
+     * Creates a reader that continues from a checkpoint of a reader of the same
+     * file, right at the byte where the checkpoint was taken.
+     */
+    public static MappedCategoricalStreamReader resume(String path, DataInput in) throws IOException {
+        long position = in.readLong();
+
+        MappedCategoricalStreamReader reader = new MappedCategoricalStreamReader(path, false, defaultMappingSize);
+        reader.position = position == -1 ? reader.fileSize : position;
+        reader.restore(in);
+        return reader;
+    }
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    public MappedCategoricalStreamReader(String path, boolean hasHeader) throws IOException {
+        this(path, hasHeader, defaultMappingSize);
+    }
+
+    /**
+     * Byte offset of the first record that has not been read yet.
+     */
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    MappedCategoricalStreamReader(String path, boolean hasHeader, int mappingSize) throws IOException {
+        this.channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.mappingSize = mappingSize;
+
+        map(0);
+
+        if (hasHeader) {
+            skipLines(1);
+        }
+    }
+
+    @Override
+    protected int[] readRecord() {
+        if (!parse(true)) {
+            return null;
+        }
+
+        checkNumAttributes(numFields);
+        return Arrays.copyOf(fieldCodes, numFields);
+    }
+
+    @Override
+    protected void skipLines(int maxSize) {
+        // Skip `maxSize` records.
+        for (int size = 0; size < maxSize && parse(false); size++) {
+            countSoFar++;
+        }
+    }
+
+    @Override
+    protected long resumePosition() {
+        return position;
+    }
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int mappingSize;
+
+    private MappedByteBuffer buffer;
+    private long mappingStart;
+    private long position = 0;
+
+    private int numFields = 0;
+    private int[] fieldCodes = new int[16];
+    private int fieldSize = 0;
+    private byte[] fieldBytes = new byte[64];
+
+    private boolean parse(boolean encode) {
+        int end;
+
+        while (position < fileSize) {
+            if (position < mappingStart || position >= mappingStart + buffer.limit()) {
+                map(position);
+            }
+
+            end = parseRecord((int) (position - mappingStart), encode);
+            if (end != -1) {
+                position = mappingStart + end;
+                return true;
+            }
+
+            // The record continues after the end of the mapped region.
+            if (mappingStart == position) {
+                throw new IllegalStateException("Record at byte " + position + " is longer than " +
+                        mappingSize + " bytes.");
+            }
+            map(position);
+        }
+
+        return false;
+    }
+
+    /**
+     * Parses the record that starts at the given index of the mapped region and
+     * returns the index right after it, or -1 if the record is not entirely mapped.
+     */
+    private int parseRecord(int index, boolean encode) {
+        MappedByteBuffer buffer = this.buffer;
+        int limit = buffer.limit();
+        boolean lastRegion = mappingStart + limit == fileSize;
+        byte value;
+
+        numFields = 0;
+        while (true) {
+            fieldSize = 0;
+
+            if (index < limit && buffer.get(index) == '"') {
+                // Read an encapsulated value, in which pairs of quotes stand for one quote.
+                index++;
+                while (true) {
+                    if (index >= limit) {
+                        if (lastRegion) {
+                            break;
+                        }
+                        return -1;
+                    }
+
+                    value = buffer.get(index);
+                    if (value == '"') {
+                        if (index + 1 >= limit && !lastRegion) {
+                            return -1;
+                        }
+                        if (index + 1 < limit && buffer.get(index + 1) == '"') {
+                            if (encode) {
+                                append(value);
+                            }
+                            index += 2;
+                        } else {
+                            index++;
+                            break;
+                        }
+                    } else {
+                        if (encode) {
+                            append(value);
+                        }
+                        index++;
+                    }
+                }
+            }
+
+            // Read a plain value, or whatever follows the closing quote up to the delimiter.
+            while (index < limit) {
+                value = buffer.get(index);
+                if (value == ',' || value == '\n' || value == '\r') {
+                    break;
+                }
+                if (encode) {
+                    append(value);
+                }
+                index++;
+            }
+            if (index >= limit && !lastRegion) {
+                return -1;
+            }
+
+            if (encode) {
+                if (numFields == fieldCodes.length) {
+                    fieldCodes = Arrays.copyOf(fieldCodes, 2 * fieldCodes.length);
+                }
+                fieldCodes[numFields] = dictionary.encode(numFields, fieldBytes, 0, fieldSize);
+            }
+            numFields++;
+
+            if (index >= limit) {
+                // Reached the end of the file.
+                return index;
+            }
+
+            value = buffer.get(index);
+            index++;
+            if (value == ',') {
+                continue;
+            }
+            if (value == '\r') {
+                if (index < limit) {
+                    if (buffer.get(index) == '\n') {
+                        index++;
+                    }
+                } else if (!lastRegion) {
+                    return -1;
+                }
+            }
+            return index;
+        }
+    }
+
+    private void append(byte value) {
+        if (fieldSize == fieldBytes.length) {
+            fieldBytes = Arrays.copyOf(fieldBytes, 2 * fieldBytes.length);
+        }
+        fieldBytes[fieldSize] = value;
+        fieldSize++;
+    }
+
+    private void map(long start) {
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(mappingSize, fileSize - start));
+            mappingStart = start;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ *      DataStreamReader/RecordScanner.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DataStreamReader;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+
+/**
+ * Finds where records start in UTF-8 encoded RFC 4180 CSV bytes, without parsing
+ * their fields, following the same rules as the tokenizer of
+ * {@link ChannelCategoricalStreamReader}.
+ *
+ * A range of bytes that does not start at the beginning of the file may start
+ * inside a quoted value, so it is scanned from every state of the tokenizer at
+ * once. Once the states of all ranges are known in order, every range can be
+ * scanned again from its actual state.
+ */
+final class RecordScanner {
+
+    /*--------------------------------------------------------------------------*
+     *                        STATIC MEMBERS AND METHODS                        *
+     *--------------------------------------------------------------------------*/
+
+    // States of the tokenizer between two bytes.
+    static final int recordStart = 0;
+    static final int numStates = 6;
+    private static final int fieldStart = 1;
+    private static final int plainField = 2;
+    private static final int quotedField = 3;
+    private static final int quoteInQuotedField = 4;
+    private static final int afterCarriageReturn = 5;
+
+    // Classes of bytes that the tokenizer tells apart.
+    private static final int numClasses = 5;
+    private static final int otherByte = 0;
+    private static final int quote = 1;
+    private static final int comma = 2;
+    private static final int lineFeed = 3;
+    private static final int carriageReturn = 4;
+
+    private static final int[] classes = new int[256];
+
+    // Next state for every state and class of byte, plus `startFlag` if the byte starts a record.
+    private static final int startFlag = 8;
+    private static final int[] transitions = new int[numStates * numClasses];
+
+    static {
+        classes['"'] = quote;
+        classes[','] = comma;
+        classes['\n'] = lineFeed;
+        classes['\r'] = carriageReturn;
+
+        for (int state = 0; state < numStates; state++) {
+            for (int byteClass = 0; byteClass < numClasses; byteClass++) {
+                transitions[state * numClasses + byteClass] = transition(state, byteClass);
+            }
+        }
+    }
+
+    /**
+     * Counts the records that start in the remaining bytes of the buffer when
+     * they are scanned from every state, along with the state they end in.
+     */
+    static void countStarts(ByteBuffer bytes, long[] numStarts, int[] endStates) {
+        int[] states = new int[numStates];
+        for (int state = 0; state < numStates; state++) {
+            states[state] = state;
+        }
+
+        int byteClass, transition;
+        for (int i = bytes.position(); i < bytes.limit(); i++) {
+            byteClass = classes[bytes.get(i) & 0xFF];
+            for (int lane = 0; lane < numStates; lane++) {
+                transition = transitions[states[lane] * numClasses + byteClass];
+                states[lane] = transition & (startFlag - 1);
+                numStarts[lane] += transition >>> 3;
+            }
+        }
+
+        System.arraycopy(states, 0, endStates, 0, numStates);
+    }
+
+    /**
+     * Scans the remaining bytes of the buffer from the given state, and adds the
+     * position in the file of every `every`th record, counting from the record
+     * whose index is zero. `firstIndex` is the index of the first record that
+     * starts in the buffer, and `filePosition` the position of the buffer in the
+     * file.
+     */
+    static void findStarts(ByteBuffer bytes, int state, long firstIndex, int every, long filePosition,
+                           List<Long> positions) {
+        long index = firstIndex;
+        int transition;
+        for (int i = bytes.position(); i < bytes.limit(); i++) {
+            transition = transitions[state * numClasses + classes[bytes.get(i) & 0xFF]];
+            state = transition & (startFlag - 1);
+            if (transition >= startFlag) {
+                if (index >= 0 && index % every == 0) {
+                    positions.add(filePosition + i - bytes.position());
+                }
+                index++;
+            }
+        }
+    }
+
+    private static int transition(int state, int byteClass) {
+        int start = 0;
+
+        if (state == afterCarriageReturn) {
+            if (byteClass == lineFeed) {
+                return recordStart;
+            }
+            state = recordStart;
+        }
+        if (state == recordStart) {
+            start = startFlag;
+            state = fieldStart;
+        }
+        if (state == fieldStart) {
+            if (byteClass == quote) {
+                return quotedField | start;
+            }
+            state = plainField;
+        }
+        if (state == quotedField) {
+            return (byteClass == quote ? quoteInQuotedField : quotedField) | start;
+        }
+        if (state == quoteInQuotedField && byteClass == quote) {
+            return quotedField | start;
+        }
+
+        switch (byteClass) {
+            case comma:
+                return fieldStart | start;
+            case lineFeed:
+                return recordStart | start;
+            case carriageReturn:
+                return afterCarriageReturn | start;
+            default:
+                return plainField | start;
+        }
+    }
+
+}
@@ -0,0 +1,321 @@
+/*
+ *      DataStreamReader/ShardedCategoricalFileReader.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DataStreamReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+
+/**
+ * Reads the blocks of a UTF-8 encoded RFC 4180 CSV file in parallel, to process
+ * large files offline.
+ *
+ * The file is split into shards that are scanned in parallel for the byte range
+ * of every block. Blocks are then read in waves. The blocks of a wave are parsed
+ * in parallel, each with a dictionary of its own. Their dictionaries are merged
+ * into the dictionary of the file in order, so that every value gets the same
+ * code as when the file is read sequentially, and the blocks are encoded with
+ * those codes in parallel. Blocks are the same as the ones a
+ * {@link MappedCategoricalStreamReader} of the file returns.
+ */
+public final class ShardedCategoricalFileReader implements Closeable {
+
+    /*--------------------------------------------------------------------------*
+     *                        STATIC MEMBERS AND METHODS                        *
+     *--------------------------------------------------------------------------*/
+
+    private static final long minShardSize = 1 << 20;
+    private static final long maxShardSize = 1 << 30;
+    private static final int targetNumShards = 64;
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    /**
+     * Opens the file and finds its blocks of `blockSize` records, running the
+     * scans on the given executor, which is also used to read the blocks. The
+     * executor is not shut down by the reader.
+     */
+    public ShardedCategoricalFileReader(String path, boolean hasHeader, int blockSize, ExecutorService executor)
+            throws IOException {
+        this(path, hasHeader, blockSize, executor, 0);
+    }
+
+    /**
+     * Opens the file like the public constructor, splitting it into shards of
+     * `shardSize` bytes instead, or into shards of a size that suits the file if
+     * it is 0.
+     */
+    ShardedCategoricalFileReader(String path, boolean hasHeader, int blockSize, ExecutorService executor,
+                                 long shardSize) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size should be positive.");
+        }
+        if (shardSize < 0) {
+            throw new IllegalArgumentException("Shard size should not be negative.");
+        }
+
+        this.channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        this.blockSize = blockSize;
+        this.executor = executor;
+        this.numHeaderRecords = hasHeader ? 1 : 0;
+
+        try {
+            this.blockPositions = findBlocks(shardSize);
+        } catch (RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int numBlocks() {
+        return blockPositions.length - 1;
+    }
+
+    public boolean hasNext() {
+        return nextBlock < numBlocks();
+    }
+
+    /**
+     * Reads the next `maxNumBlocks` blocks, or as many as are left.
+     */
+    public List<CategoricalBlock> nextBlocks(int maxNumBlocks) {
+        int firstBlock = nextBlock;
+        int numBlocks = Math.min(maxNumBlocks, numBlocks() - firstBlock);
+
+        // Parse the blocks with dictionaries of their own.
+        List<Callable<ChannelCategoricalStreamReader>> parseTasks = new ArrayList<>(numBlocks);
+        for (int i = 0; i < numBlocks; i++) {
+            final int blockIndex = firstBlock + i;
+            parseTasks.add(() -> parse(blockIndex));
+        }
+        List<ChannelCategoricalStreamReader> readers = invokeAll(parseTasks);
+
+        // Give their values the codes they get when the file is read sequentially.
+        List<int[][]> codes = new ArrayList<>(numBlocks);
+        List<int[]> domainSizes = new ArrayList<>(numBlocks);
+        for (int i = 0; i < numBlocks; i++) {
+            codes.add(merge(firstBlock + i, readers.get(i).dictionary()));
+            domainSizes.add(domainSizes());
+        }
+
+        List<Callable<CategoricalBlock>> encodeTasks = new ArrayList<>(numBlocks);
+        for (int i = 0; i < numBlocks; i++) {
+            final int blockIndex = firstBlock + i;
+            final ChannelCategoricalStreamReader reader = readers.get(i);
+            final int[][] blockCodes = codes.get(i);
+            final int[] blockDomainSizes = domainSizes.get(i);
+            encodeTasks.add(() -> encode(blockIndex, reader, blockCodes, blockDomainSizes));
+        }
+        List<CategoricalBlock> blocks = invokeAll(encodeTasks);
+
+        nextBlock += numBlocks;
+        return blocks;
+    }
+
+    /**
+     * Dictionary of the values of the blocks read so far.
+     */
+    public CategoricalDictionary dictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private final FileChannel channel;
+    private final int blockSize;
+    private final ExecutorService executor;
+    // Headers are counted in the offsets of blocks, as sequential readers count skipped lines.
+    private final int numHeaderRecords;
+    private final CategoricalDictionary dictionary = new CategoricalDictionary();
+
+    // Position of the first byte of every block, followed by the size of the file.
+    private final long[] blockPositions;
+    private int nextBlock = 0;
+    private int numAttributes = -1;
+
+    /**
+     * Scans shards of the file in parallel twice: first from every state, to
+     * find the state every shard actually starts in and the index of its first
+     * record, and then from that state, to find the blocks that start in it.
+     */
+    private long[] findBlocks(long shardSize) throws IOException {
+        long fileSize = channel.size();
+        if (shardSize == 0) {
+            shardSize = Math.max(minShardSize, Math.min(maxShardSize, fileSize / targetNumShards + 1));
+        }
+        int numShards = (int) ((fileSize + shardSize - 1) / shardSize);
+
+        List<Callable<ShardCount>> countTasks = new ArrayList<>(numShards);
+        for (int shard = 0; shard < numShards; shard++) {
+            final long start = shard * shardSize;
+            final long end = Math.min(fileSize, start + shardSize);
+            countTasks.add(() -> {
+                ShardCount count = new ShardCount();
+                RecordScanner.countStarts(map(start, end), count.numStarts, count.endStates);
+                return count;
+            });
+        }
+        List<ShardCount> counts = invokeAll(countTasks);
+
+        List<Callable<List<Long>>> findTasks = new ArrayList<>(numShards);
+        int state = RecordScanner.recordStart;
+        long firstIndex = -numHeaderRecords;
+        for (int shard = 0; shard < numShards; shard++) {
+            final long start = shard * shardSize;
+            final long end = Math.min(fileSize, start + shardSize);
+            final int startState = state;
+            final long shardFirstIndex = firstIndex;
+            findTasks.add(() -> {
+                List<Long> positions = new ArrayList<>();
+                RecordScanner.findStarts(map(start, end), startState, shardFirstIndex, blockSize, start, positions);
+                return positions;
+            });
+
+            firstIndex += counts.get(shard).numStarts[state];
+            state = counts.get(shard).endStates[state];
+        }
+
+        List<Long> positions = new ArrayList<>();
+        for (List<Long> shardPositions : invokeAll(findTasks)) {
+            positions.addAll(shardPositions);
+        }
+        positions.add(fileSize);
+
+        long[] blockPositions = new long[positions.size()];
+        for (int i = 0; i < blockPositions.length; i++) {
+            blockPositions[i] = positions.get(i);
+        }
+        return blockPositions;
+    }
+
+    private ChannelCategoricalStreamReader parse(int blockIndex) {
+        ChannelCategoricalStreamReader reader = new ChannelCategoricalStreamReader(false);
+        reader.feed(map(blockPositions[blockIndex], blockPositions[blockIndex + 1]));
+        reader.endOfInput();
+
+        // Only the last block may be smaller.
+        int numRecords = reader.numAvailable();
+        if (numRecords > blockSize || (numRecords < blockSize && blockIndex < numBlocks() - 1)) {
+            throw new IllegalStateException("Block " + blockIndex + " has " + numRecords +
+                    " records instead of " + blockSize + ".");
+        }
+        return reader;
+    }
+
+    /**
+     * Adds the values of a block to the dictionary of the file, in the order
+     * they appear in the block, and returns their codes in the file's dictionary
+     * for every attribute, indexed by their codes in the block's dictionary.
+     */
+    private int[][] merge(int blockIndex, CategoricalDictionary blockDictionary) {
+        if (numAttributes == -1) {
+            numAttributes = blockDictionary.numAttributes();
+        } else if (blockDictionary.numAttributes() != numAttributes) {
+            throw new IllegalStateException("Block " + blockIndex + " has " + blockDictionary.numAttributes() +
+                    " attributes instead of " + numAttributes + ".");
+        }
+
+        return dictionary.encodeAll(blockDictionary);
+    }
+
+    private int[] domainSizes() {
+        int[] domainSizes = new int[numAttributes];
+        for (int attribute = 0; attribute < numAttributes; attribute++) {
+            domainSizes[attribute] = dictionary.domainSize(attribute);
+        }
+        return domainSizes;
+    }
+
+    private CategoricalBlock encode(int blockIndex,
+                                    ChannelCategoricalStreamReader reader,
+                                    int[][] codes,
+                                    int[] domainSizes) {
+        CategoricalBlock block = reader.block(reader.numAvailable());
+
+        int[][] columns = new int[numAttributes][block.size()];
+        int[] values;
+        for (int attribute = 0; attribute < numAttributes; attribute++) {
+            values = block.column(attribute);
+            for (int i = 0; i < block.size(); i++) {
+                columns[attribute][i] = codes[attribute][values[i]];
+            }
+        }
+
+        return new CategoricalBlock(numHeaderRecords + blockIndex * blockSize, block.size(), columns, domainSizes);
+    }
+
+    private ByteBuffer map(long start, long end) {
+        if (end - start > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Range at byte " + start + " is longer than " +
+                    Integer.MAX_VALUE + " bytes.");
+        }
+
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        try {
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading the file.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Number of records that start in a shard, and the state it ends in, when it
+     * is scanned from every state.
+     */
+    private static final class ShardCount {
+        final long[] numStarts = new long[RecordScanner.numStates];
+        final int[] endStates = new int[RecordScanner.numStates];
+    }
+
+}
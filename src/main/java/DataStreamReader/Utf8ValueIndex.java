@@ -0,0 +1,131 @@
+/*
+ *      DataStreamReader/Utf8ValueIndex.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DataStreamReader;
+
+import java.util.Arrays;
+
+
+/**
+ * Open addressing hash table from UTF-8 encoded values of one attribute to their
+ * codes, which lets values be looked up without decoding them to strings.
+ */
+final class Utf8ValueIndex {
+
+    /*--------------------------------------------------------------------------*
+     *                        STATIC MEMBERS AND METHODS                        *
+     *--------------------------------------------------------------------------*/
+
+    static int hash(byte[] bytes, int offset, int length) {
+        // FNV-1a.
+        int hash = 0x811c9dc5;
+        for (int i = offset; i < offset + length; i++) {
+            hash ^= bytes[i];
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    /**
+     * Returns code of the given value, or -1 if it is not in the index.
+     */
+    int find(byte[] bytes, int offset, int length, int hash) {
+        int mask = slots.length - 1;
+        int code;
+
+        for (int slot = hash & mask; (code = slots[slot] - 1) != -1; slot = (slot + 1) & mask) {
+            if (hashes[code] == hash && equals(code, bytes, offset, length)) {
+                return code;
+            }
+        }
+        return -1;
+    }
+
+    void insert(byte[] bytes, int offset, int length, int hash, int code) {
+        if (code >= hashes.length) {
+            int oldCapacity = hashes.length;
+            int capacity = Math.max(code + 1, 2 * oldCapacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+            valueOffsets = Arrays.copyOf(valueOffsets, capacity);
+            valueLengths = Arrays.copyOf(valueLengths, capacity);
+            Arrays.fill(valueLengths, oldCapacity, capacity, -1);
+        }
+        if (valuesSize + length > values.length) {
+            values = Arrays.copyOf(values, Math.max(valuesSize + length, 2 * values.length));
+        }
+
+        System.arraycopy(bytes, offset, values, valuesSize, length);
+        hashes[code] = hash;
+        valueOffsets[code] = valuesSize;
+        valueLengths[code] = length;
+        valuesSize += length;
+
+        size++;
+        if (2 * size > slots.length) {
+            slots = new int[2 * slots.length];
+            for (int i = 0; i < hashes.length; i++) {
+                if (valueLengths[i] != -1) {
+                    place(i);
+                }
+            }
+        } else {
+            place(code);
+        }
+    }
+
+    Utf8ValueIndex() {
+        Arrays.fill(valueLengths, -1);
+    }
+
+    private int[] slots = new int[16];
+    private int[] hashes = new int[8];
+    private int[] valueOffsets = new int[8];
+    private int[] valueLengths = new int[8];
+    private byte[] values = new byte[64];
+    private int valuesSize = 0;
+    private int size = 0;
+
+    private void place(int code) {
+        int mask = slots.length - 1;
+        int slot = hashes[code] & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = code + 1;
+    }
+
+    private boolean equals(int code, byte[] bytes, int offset, int length) {
+        if (valueLengths[code] != length) {
+            return false;
+        }
+        int valueOffset = valueOffsets[code];
+        for (int i = 0; i < length; i++) {
+            if (values[valueOffset + i] != bytes[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
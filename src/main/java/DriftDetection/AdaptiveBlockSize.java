@@ -0,0 +1,155 @@
+/*
+ *      DriftDetection/AdaptiveBlockSize.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DriftDetection;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Chooses the size of the next block of a detector within bounds, from how long
+ * recent blocks took to arrive and to be processed, and from how much their
+ * scores varied.
+ *
+ * With a target latency, blocks are sized to fill up within it at the rate
+ * records have recently arrived. With a target processing time, blocks are sized
+ * to be processed within it at the recent processing time per record. If both
+ * are set, the smaller size wins. If scores vary more than the maximum variation
+ * relative to their mean, blocks are considered too small to estimate the
+ * statistics reliably, and they grow instead of shrinking. The size moves
+ * halfway towards the chosen size after every block, to avoid oscillating.
+ *
+ * A detector notifies the policy of its events, which carry the scores.
+ */
+public final class AdaptiveBlockSize implements DriftListener {
+
+    /*--------------------------------------------------------------------------*
+     *                        STATIC MEMBERS AND METHODS                        *
+     *--------------------------------------------------------------------------*/
+
+    // Weight of the latest block in the averages of rates and scores.
+    private static final double smoothing = 0.2;
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    public AdaptiveBlockSize(int minSize, int maxSize, int initialSize) {
+        if (minSize <= 0 || maxSize < minSize || initialSize < minSize || initialSize > maxSize) {
+            throw new IllegalArgumentException("Sizes should be positive and the initial size within bounds.");
+        }
+
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.size = initialSize;
+    }
+
+    public AdaptiveBlockSize targetLatency(long duration, TimeUnit unit) {
+        this.targetLatency = unit.toNanos(duration);
+        return this;
+    }
+
+    public AdaptiveBlockSize targetProcessingTime(long duration, TimeUnit unit) {
+        this.targetProcessingTime = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Coefficient of variation of scores above which blocks should grow.
+     */
+    public AdaptiveBlockSize maxScoreVariation(double variation) {
+        this.maxScoreVariation = variation;
+        return this;
+    }
+
+    /**
+     * Size of the next block.
+     */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void onEvent(DriftEvent event) {
+        if (event.isEndOfStream()) {
+            return;
+        }
+
+        double score = event.score();
+        if (numScores == 0) {
+            scoreMean = score;
+        } else {
+            double difference = score - scoreMean;
+            scoreMean += smoothing * difference;
+            scoreVariance = (1 - smoothing) * (scoreVariance + smoothing * difference * difference);
+        }
+        numScores++;
+    }
+
+    /**
+     * Adjusts the size after a block of `blockSize` records took `arrivalTime`
+     * nanoseconds to arrive, or to be read, and `processingTime` nanoseconds to
+     * be processed.
+     */
+    public void update(int blockSize, long arrivalTime, long processingTime) {
+        if (blockSize <= 0) {
+            return;
+        }
+
+        arrivalTimePerRecord = average(arrivalTimePerRecord, (double) arrivalTime / blockSize);
+        processingTimePerRecord = average(processingTimePerRecord, (double) processingTime / blockSize);
+
+        double targetSize = Double.POSITIVE_INFINITY;
+        if (targetLatency > 0 && arrivalTimePerRecord > 0) {
+            targetSize = Math.min(targetSize, targetLatency / arrivalTimePerRecord);
+        }
+        if (targetProcessingTime > 0 && processingTimePerRecord > 0) {
+            targetSize = Math.min(targetSize, targetProcessingTime / processingTimePerRecord);
+        }
+        if (Double.isInfinite(targetSize)) {
+            targetSize = size;
+        }
+
+        if (numScores > 1 && scoreMean > 0 && Math.sqrt(scoreVariance) / scoreMean > maxScoreVariation) {
+            targetSize = Math.max(targetSize, 1.5 * size);
+        }
+
+        double nextSize = size + (targetSize - size) / 2;
+        size = (int) Math.max(minSize, Math.min(maxSize, Math.round(nextSize)));
+    }
+
+    private final int minSize;
+    private final int maxSize;
+    private int size;
+
+    private long targetLatency = 0;
+    private long targetProcessingTime = 0;
+    private double maxScoreVariation = Double.POSITIVE_INFINITY;
+
+    private double arrivalTimePerRecord = -1;
+    private double processingTimePerRecord = -1;
+    private double scoreMean = 0, scoreVariance = 0;
+    private long numScores = 0;
+
+    private double average(double average, double value) {
+        return average < 0 ? value : average + smoothing * (value - average);
+    }
+
+}
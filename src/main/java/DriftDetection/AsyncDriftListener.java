@@ -0,0 +1,135 @@
+/*
+ *      DriftDetection/AsyncDriftListener.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DriftDetection;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+
+/**
+ * Delivers events to another listener on a separate thread, so that a slow
+ * listener does not hold up detection.
+ *
+ * At most `capacity` events wait for delivery. When the queue is full, events
+ * of blocks without drift are dropped; drift and end of stream events are never
+ * dropped and wait for room in the queue instead.
+ */
+public final class AsyncDriftListener implements DriftListener, AutoCloseable {
+
+    /*--------------------------------------------------------------------------*
+     *                        STATIC MEMBERS AND METHODS                        *
+     *--------------------------------------------------------------------------*/
+
+    private static final DriftEvent closed = DriftEvent.endOfStream(0, 0);
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    public AsyncDriftListener(DriftListener listener, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity should be positive.");
+        }
+
+        this.listener = listener;
+        this.events = new ArrayBlockingQueue<>(capacity);
+
+        this.deliverer = new Thread(this::deliver, "AsyncDriftListener");
+        this.deliverer.setDaemon(true);
+        this.deliverer.start();
+    }
+
+    @Override
+    public void onEvent(DriftEvent event) {
+        checkFailure();
+
+        if (event.isDrift() || event.isEndOfStream()) {
+            put(event);
+        } else if (!events.offer(event)) {
+            droppedEvents++;
+        }
+    }
+
+    /**
+     * Number of events that were dropped because the queue was full.
+     */
+    public long droppedEvents() {
+        return droppedEvents;
+    }
+
+    /**
+     * Waits for the queued events to be delivered, and stops the delivering thread.
+     */
+    @Override
+    public void close() {
+        put(closed);
+        try {
+            deliverer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while delivering events.", e);
+        }
+        checkFailure();
+    }
+
+    private final DriftListener listener;
+    private final BlockingQueue<DriftEvent> events;
+    private final Thread deliverer;
+    private volatile Throwable failure = null;
+    private long droppedEvents = 0;
+
+    private void put(DriftEvent event) {
+        try {
+            events.put(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing an event.", e);
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new IllegalStateException("Listener failed.", failure);
+        }
+    }
+
+    private void deliver() {
+        DriftEvent event;
+        try {
+            while ((event = events.take()) != closed) {
+                listener.onEvent(event);
+            }
+        } catch (InterruptedException e) {
+            // Nothing else will be delivered.
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            // Keep draining the queue, so that the detector is not blocked on a full queue.
+            try {
+                while (events.take() != closed) {
+                    // Drop the event.
+                }
+            } catch (InterruptedException ignored) {
+                // Nothing else will be delivered.
+            }
+        }
+    }
+
+}
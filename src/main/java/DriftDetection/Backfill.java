@@ -0,0 +1,142 @@
+/*
+ *      DriftDetection/Backfill.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DriftDetection;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import DataStreamReader.CategoricalBlock;
+import DataStreamReader.ShardedCategoricalFileReader;
+
+
+/**
+ * Runs detectors over large CSV files offline, on a fixed number of threads.
+ *
+ * Blocks of the file are read in parallel by a
+ * {@link ShardedCategoricalFileReader}, in waves of a few blocks per thread.
+ * The blocks of a wave are measured in parallel, and the detector then decides
+ * on them in order, so that it finds the same concepts as when it runs over the
+ * file sequentially.
+ */
+public final class Backfill implements AutoCloseable {
+
+    /*--------------------------------------------------------------------------*
+     *                        STATIC MEMBERS AND METHODS                        *
+     *--------------------------------------------------------------------------*/
+
+    private static final int blocksPerThread = 4;
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    public Backfill(int numThreads) {
+        if (numThreads <= 0) {
+            throw new IllegalArgumentException("Number of threads should be positive.");
+        }
+
+        AtomicInteger numCreatedThreads = new AtomicInteger();
+        this.numThreads = numThreads;
+        this.workers = Executors.newFixedThreadPool(numThreads, runnable -> {
+            Thread thread = new Thread(runnable, "Backfill worker " + numCreatedThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Processes the file with the detector, in blocks of the detector's next
+     * block size, and finishes the detector at the end of the file. The
+     * detector's own stream is not read, and may be `null`.
+     */
+    public void run(String path, boolean hasHeader, BatchDriftDetector detector) throws IOException {
+        int blocksPerMeasurement = detector.blocksPerMeasurement();
+        List<CategoricalBlock> previousBlocks = new ArrayList<>();
+
+        try (ShardedCategoricalFileReader file =
+                     new ShardedCategoricalFileReader(path, hasHeader, detector.nextBlockSize(), workers)) {
+            while (file.hasNext()) {
+                // Measurements of the first blocks of a wave depend on the last blocks of the previous one.
+                List<CategoricalBlock> wave = file.nextBlocks(blocksPerThread * numThreads);
+                List<CategoricalBlock> blocks = new ArrayList<>(previousBlocks);
+                blocks.addAll(wave);
+
+                List<Callable<Double>> tasks = new ArrayList<>(wave.size());
+                for (int i = previousBlocks.size(); i < blocks.size(); i++) {
+                    List<CategoricalBlock> measuredBlocks =
+                            blocks.subList(Math.max(0, i + 1 - blocksPerMeasurement), i + 1);
+                    tasks.add(() -> detector.measure(measuredBlocks));
+                }
+                List<Double> measurements = invokeAll(tasks);
+
+                for (int i = 0; i < wave.size(); i++) {
+                    detector.process(wave.get(i), measurements.get(i));
+                }
+
+                previousBlocks = new ArrayList<>(
+                        blocks.subList(Math.max(0, blocks.size() - blocksPerMeasurement + 1), blocks.size()));
+            }
+        }
+
+        detector.finish();
+    }
+
+    @Override
+    public void close() {
+        workers.shutdown();
+        try {
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while stopping the workers.", e);
+        }
+    }
+
+    private final int numThreads;
+    private final ExecutorService workers;
+
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        try {
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Future<T> future : workers.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while measuring blocks.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ *      DriftDetection/BatchDriftDetector.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DriftDetection;
+
+import java.util.List;
+
+import DataStreamReader.CategoricalBlock;
+
+
+/**
+ * A detector whose processing of a block splits into a measurement of the
+ * block, which only depends on the few blocks up to it, and a decision, which
+ * depends on the measurements before it. Measurements of many blocks can then
+ * be computed in parallel, and decided on in order, e.g. by {@link Backfill}.
+ *
+ * Detectors that are only given blocks this way may be created without a
+ * stream. Their metrics then only cover the detector, and `run` and `step`
+ * should not be called.
+ */
+public interface BatchDriftDetector extends DriftDetector {
+
+    /**
+     * Number of consecutive blocks, ending with a block, that its measurement
+     * depends on.
+     */
+    int blocksPerMeasurement();
+
+    /**
+     * Measures the last of the given consecutive blocks, of which there should
+     * be `blocksPerMeasurement`, or fewer at the start of the stream. Does not
+     * change the detector, and may be called by many threads at once.
+     *
+     * @return the measurement, or `NaN` if the block is not compared with others.
+     */
+    double measure(List<CategoricalBlock> blocks);
+
+    /**
+     * Processes the next block of the stream, like `process`, given its
+     * measurement. Blocks of a stream should either all be processed with their
+     * measurements or all without.
+     */
+    void process(CategoricalBlock block, double measurement);
+
+}
@@ -0,0 +1,285 @@
+/*
+ *      DriftDetection/ChannelDriver.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DriftDetection;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import DataStreamReader.ChannelCategoricalStreamReader;
+
+
+/**
+ * Drives detectors with records as they arrive on non-blocking channels, such as
+ * sockets and pipes, all served by a single selector thread.
+ *
+ * Bytes read from a channel are fed to the reader of its detector, which steps
+ * whenever a whole block has arrived. Once the channel reaches its end, the
+ * detector processes the remaining records and finishes. Detectors run on the
+ * selector thread, so a detector that takes long delays reading the other
+ * channels, whose bytes wait in their buffers meanwhile. Blocking channels, such
+ * as the one of `System.in`, are driven on the calling thread by `drive`.
+ */
+public final class ChannelDriver implements AutoCloseable {
+
+    /*--------------------------------------------------------------------------*
+     *                        STATIC MEMBERS AND METHODS                        *
+     *--------------------------------------------------------------------------*/
+
+    private static final int bufferSize = 1 << 16;
+
+    /**
+     * Drives the detector with records read from the given channel, on the
+     * calling thread, until the channel reaches its end.
+     */
+    public static void drive(ReadableByteChannel channel,
+                             ChannelCategoricalStreamReader stream,
+                             DriftDetector detector) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+        while (channel.read(buffer) != -1) {
+            buffer.flip();
+            stream.feed(buffer);
+            buffer.clear();
+            stepWhileAvailable(stream, detector);
+        }
+        finish(stream, detector);
+    }
+
+    private static void stepWhileAvailable(ChannelCategoricalStreamReader stream, DriftDetector detector) {
+        while (stream.numAvailable() >= detector.nextBlockSize()) {
+            detector.step();
+        }
+    }
+
+    private static void finish(ChannelCategoricalStreamReader stream, DriftDetector detector) {
+        stream.endOfInput();
+        while (detector.step()) {
+            // Process the remaining records, and finish once they run out.
+        }
+    }
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    public ChannelDriver() throws IOException {
+        this.selector = Selector.open();
+        this.selectorThread = new Thread(this::select, "ChannelDriver selector");
+        this.selectorThread.setDaemon(true);
+        this.selectorThread.start();
+    }
+
+    /**
+     * Starts driving the given detector, whose stream should be the given reader,
+     * with records read from the channel. The channel is made non-blocking, and
+     * is closed by the driver once it reaches its end or fails. Neither the
+     * detector nor the reader should be used by any other thread from now on.
+     */
+    public <C extends SelectableChannel & ReadableByteChannel> void register(
+            C channel, ChannelCategoricalStreamReader stream, DriftDetector detector) throws IOException {
+        channel.configureBlocking(false);
+
+        // Connections are only counted once they are queued, and are queued before the driver can close, so that
+        // closing stops every connection that is counted.
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Driver is closed.");
+            }
+            numRunning++;
+            registrations.add(new Connection(channel, channel, stream, detector));
+        }
+        selector.wakeup();
+    }
+
+    /**
+     * Waits until all the registered channels reach their ends and their
+     * detectors finish.
+     *
+     * @throws IllegalStateException if reading any of the channels or running
+     *                               any of the detectors failed; the others run
+     *                               to completion.
+     */
+    public void awaitCompletion() throws InterruptedException {
+        synchronized (this) {
+            while (numRunning > 0) {
+                wait();
+            }
+
+            if (!failures.isEmpty()) {
+                IllegalStateException exception = new IllegalStateException(
+                        failures.size() + " channel(s) failed.", failures.get(0));
+                for (int i = 1; i < failures.size(); i++) {
+                    exception.addSuppressed(failures.get(i));
+                }
+                failures.clear();
+                throw exception;
+            }
+        }
+    }
+
+    /**
+     * Stops reading all the channels and closes them. Detectors that were
+     * stopped are not finished.
+     */
+    @Override
+    public void close() {
+        Connection connection;
+        synchronized (this) {
+            closed = true;
+            while ((connection = registrations.poll()) != null) {
+                stop(connection, null);
+            }
+        }
+        selectorThread.interrupt();
+        selector.wakeup();
+        try {
+            selectorThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while stopping the driver.", e);
+        }
+    }
+
+    private final Selector selector;
+    private final Thread selectorThread;
+    private final Queue<Connection> registrations = new ConcurrentLinkedQueue<>();
+    private final List<Throwable> failures = new ArrayList<>();
+    private int numRunning = 0;
+    private boolean closed = false;
+
+    private void select() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+        Connection connection;
+        Iterator<SelectionKey> keys;
+        SelectionKey key;
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                while ((connection = registrations.poll()) != null) {
+                    try {
+                        connection.selectable.register(selector, SelectionKey.OP_READ, connection);
+                    } catch (IOException | RuntimeException e) {
+                        stop(connection, e);
+                    }
+                }
+
+                selector.select();
+
+                keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    key = keys.next();
+                    keys.remove();
+                    read((Connection) key.attachment(), buffer);
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            // Channels that are still open cannot be read anymore.
+            for (SelectionKey remainingKey : selector.keys()) {
+                stop((Connection) remainingKey.attachment(), e);
+            }
+        }
+
+        // The driver is closed.
+        for (SelectionKey remainingKey : selector.keys()) {
+            stop((Connection) remainingKey.attachment(), null);
+        }
+        while ((connection = registrations.poll()) != null) {
+            stop(connection, null);
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // Channels are closed already.
+        }
+    }
+
+    private void read(Connection connection, ByteBuffer buffer) {
+        try {
+            int size = connection.readable.read(buffer);
+            if (size > 0) {
+                buffer.flip();
+                connection.stream.feed(buffer);
+                buffer.clear();
+                stepWhileAvailable(connection.stream, connection.detector);
+            } else if (size == -1) {
+                finish(connection.stream, connection.detector);
+                stop(connection, null);
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            buffer.clear();
+            stop(connection, e);
+        }
+    }
+
+    /**
+     * Closes the channel of a connection that has ended, failed or been stopped,
+     * and stops waiting for it.
+     */
+    private void stop(Connection connection, Throwable failure) {
+        try {
+            connection.selectable.close();
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+
+        synchronized (this) {
+            if (connection.stopped) {
+                return;
+            }
+            connection.stopped = true;
+            if (failure != null) {
+                failures.add(failure);
+            }
+            numRunning--;
+            notifyAll();
+        }
+    }
+
+    private static final class Connection {
+        final SelectableChannel selectable;
+        final ReadableByteChannel readable;
+        final ChannelCategoricalStreamReader stream;
+        final DriftDetector detector;
+        boolean stopped = false;
+
+        Connection(SelectableChannel selectable,
+                   ReadableByteChannel readable,
+                   ChannelCategoricalStreamReader stream,
+                   DriftDetector detector) {
+            this.selectable = selectable;
+            this.readable = readable;
+            this.stream = stream;
+            this.detector = detector;
+        }
+    }
+
+}
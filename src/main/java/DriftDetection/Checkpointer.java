@@ -0,0 +1,96 @@
+/*
+ *      DriftDetection/Checkpointer.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DriftDetection;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import DataStreamReader.CategoricalStreamReader;
+
+
+/**
+ * Writes checkpoints of a detector and its stream to a file, every given number
+ * of events or on demand.
+ *
+ * A checkpoint is the checkpoint of the stream followed by the checkpoint of the
+ * detector. To resume, the stream is created by its reader's `resume` factory,
+ * and the detector is created over it and then restored, from the same input.
+ * Checkpoints are written to a temporary file that then replaces the previous
+ * one, so the file always holds a complete checkpoint.
+ *
+ * The checkpointer should be notified on the thread that runs the detector, and
+ * the detector should not read ahead of the blocks it has processed, i.e. it
+ * should not use a pipeline.
+ */
+public final class Checkpointer implements DriftListener {
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    public Checkpointer(Path path, CategoricalStreamReader stream, DriftDetector detector, int interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Interval should be positive.");
+        }
+
+        this.path = path;
+        this.stream = stream;
+        this.detector = detector;
+        this.interval = interval;
+    }
+
+    @Override
+    public void onEvent(DriftEvent event) {
+        numEvents++;
+        if (numEvents % interval == 0 || event.isEndOfStream()) {
+            try {
+                save();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public void save() throws IOException {
+        Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temporaryPath.toFile())))) {
+            stream.checkpoint(out);
+            detector.checkpoint(out);
+        }
+
+        Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private final Path path;
+    private final CategoricalStreamReader stream;
+    private final DriftDetector detector;
+    private final int interval;
+    private long numEvents = 0;
+
+}
@@ -0,0 +1,58 @@
+/*
+ *      DriftDetection/ConceptPrinter.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DriftDetection;
+
+import java.io.PrintStream;
+
+
+/**
+ * Prints the concepts found by a detector, one range of records per line.
+ */
+public final class ConceptPrinter implements DriftListener {
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    public ConceptPrinter(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void onEvent(DriftEvent event) {
+        if (!started) {
+            out.println("Found concepts:");
+            started = true;
+        }
+
+        if (event.isDrift() || (event.isEndOfStream() && event.position() >= event.conceptStart())) {
+            out.println(event.conceptStart() + "-" + event.position());
+        }
+
+        if (event.isEndOfStream()) {
+            out.println("Done.");
+        }
+    }
+
+    private final PrintStream out;
+    private boolean started = false;
+
+}
@@ -0,0 +1,127 @@
+/*
+ *      DriftDetection/CountMinSketch.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DriftDetection;
+
+import java.util.Arrays;
+import java.util.Random;
+
+
+/**
+ * Approximate counts of keys in fixed memory.
+ *
+ * Every key is counted in one of `width` counters in each of `depth` rows,
+ * chosen by an independent hash function for each row, and its count is
+ * estimated by the smallest of its counters. Estimates are never less than the
+ * true count. For a sketch created by `withErrorBudget(epsilon, delta)` over a
+ * total count of `N`, an estimate exceeds the true count by more than
+ * `epsilon * N` with probability at most `delta`. A key that was never counted
+ * is estimated as zero unless each of its counters is shared with some counted
+ * key, which for `k` distinct counted keys happens with probability at most
+ * `(k / width) ^ depth`.
+ */
+public final class CountMinSketch {
+
+    /*--------------------------------------------------------------------------*
+     *                        STATIC MEMBERS AND METHODS                        *
+     *--------------------------------------------------------------------------*/
+
+    /**
+     * Creates a sketch of `ceil(e / epsilon)` counters in each of
+     * `ceil(ln(1 / delta))` rows.
+     */
+    public static CountMinSketch withErrorBudget(double epsilon, double delta, long seed) {
+        if (epsilon <= 0 || epsilon >= 1 || delta <= 0 || delta >= 1) {
+            throw new IllegalArgumentException("Error budget should be between zero and one.");
+        }
+        return new CountMinSketch((int) Math.ceil(Math.log(1 / delta)), (int) Math.ceil(Math.E / epsilon), seed);
+    }
+
+    /**
+     * Key of the given value of the given attribute.
+     */
+    public static long keyOf(int attributeIndex, int value) {
+        return ((long) attributeIndex << 32) | (value & 0xFFFFFFFFL);
+    }
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    public CountMinSketch(int depth, int width, long seed) {
+        if (depth <= 0 || width <= 0) {
+            throw new IllegalArgumentException("Depth and width should be positive.");
+        }
+
+        this.depth = depth;
+        this.width = width;
+        this.counters = new int[depth * width];
+        this.seeds = new long[depth];
+
+        Random random = new Random(seed);
+        for (int row = 0; row < depth; row++) {
+            seeds[row] = random.nextLong();
+        }
+    }
+
+    public void add(long key, int delta) {
+        for (int row = 0; row < depth; row++) {
+            counters[row * width + bucketOf(row, key)] += delta;
+        }
+    }
+
+    public int estimate(long key) {
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[row * width + bucketOf(row, key)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Counter of the given row in which the key is counted.
+     */
+    public int bucketOf(int row, long key) {
+        // Finalizer of SplitMix64, which spreads every bit of the key over the hash.
+        long hash = key ^ seeds[row];
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        hash = hash ^ (hash >>> 31);
+        return (int) ((hash >>> 1) % width);
+    }
+
+    public void clear() {
+        Arrays.fill(counters, 0);
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    private final int depth;
+    private final int width;
+    private final int[] counters;
+    private final long[] seeds;
+
+}
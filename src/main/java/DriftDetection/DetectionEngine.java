@@ -0,0 +1,158 @@
+/*
+ *      DriftDetection/DetectionEngine.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DriftDetection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Runs the detectors of many independent streams on a fixed number of threads.
+ *
+ * Detectors advance one block at a time. A detector has at most one block being
+ * read or processed at any time, and is queued behind all the other detectors
+ * before its next block, so that streams take turns on the threads and no
+ * stream reads ahead of its detector. Listeners of a detector are notified on
+ * whichever thread processes its block, but never concurrently.
+ */
+public final class DetectionEngine implements AutoCloseable {
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    public DetectionEngine(int numThreads) {
+        if (numThreads <= 0) {
+            throw new IllegalArgumentException("Number of threads should be positive.");
+        }
+
+        AtomicInteger numCreatedThreads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(numThreads, runnable -> {
+            Thread thread = new Thread(runnable, "DetectionEngine worker " + numCreatedThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts running the given detector until the end of its stream. Detectors
+     * should not be used by any other thread once they are submitted.
+     */
+    public void submit(DriftDetector detector) {
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Engine is closed.");
+            }
+            numRunning++;
+        }
+        schedule(detector);
+    }
+
+    /**
+     * Waits until all the submitted detectors reach the end of their streams.
+     *
+     * @throws IllegalStateException if any of the detectors failed; the detector
+     *                               stops at its failure, while the others run to
+     *                               completion.
+     */
+    public void awaitCompletion() throws InterruptedException {
+        synchronized (this) {
+            while (numRunning > 0) {
+                wait();
+            }
+
+            if (!failures.isEmpty()) {
+                IllegalStateException exception = new IllegalStateException(
+                        failures.size() + " detector(s) failed.", failures.get(0));
+                for (int i = 1; i < failures.size(); i++) {
+                    exception.addSuppressed(failures.get(i));
+                }
+                failures.clear();
+                throw exception;
+            }
+        }
+    }
+
+    /**
+     * Stops all the detectors after their current block, and waits for them.
+     * Detectors that were stopped are not finished.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        workers.shutdown();
+        try {
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while stopping the detectors.", e);
+        }
+    }
+
+    private final ExecutorService workers;
+    private final List<Throwable> failures = new ArrayList<>();
+    private int numRunning = 0;
+    private boolean closed = false;
+
+    private void schedule(DriftDetector detector) {
+        try {
+            workers.execute(() -> step(detector));
+        } catch (RejectedExecutionException e) {
+            // The engine is closed.
+            stopped(null);
+        }
+    }
+
+    private void step(DriftDetector detector) {
+        boolean hasNext;
+        try {
+            hasNext = detector.step();
+        } catch (RuntimeException | Error e) {
+            stopped(e);
+            return;
+        }
+
+        synchronized (this) {
+            hasNext = hasNext && !closed;
+        }
+        if (hasNext) {
+            schedule(detector);
+        } else {
+            stopped(null);
+        }
+    }
+
+    private synchronized void stopped(Throwable failure) {
+        if (failure != null) {
+            failures.add(failure);
+        }
+        numRunning--;
+        notifyAll();
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ *      DriftDetection/DriftDetector.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DriftDetection;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import DataStreamReader.CategoricalBlock;
+
+
+/**
+ * A detector that compares consecutive blocks of a categorical stream and
+ * reports the result of every comparison to its listeners.
+ *
+ * Blocks can either be pushed to the detector one at a time, or be read from the
+ * detector's own stream by `step` and `run`.
+ */
+public interface DriftDetector extends Runnable {
+
+    void addListener(DriftListener listener);
+
+    /**
+     * Makes the detector and its stream report measurements of their hot paths
+     * to the given metrics. Defaults to `Metrics.none`.
+     */
+    void setMetrics(Metrics metrics);
+
+    /**
+     * Processes the next block of the stream. Blocks should be consecutive and,
+     * except for the last one, of the size the detector was created with, unless
+     * it sizes blocks adaptively.
+     */
+    void process(CategoricalBlock block);
+
+    /**
+     * Reports the end of the stream, along with its last concept, to listeners.
+     */
+    void finish();
+
+    /**
+     * Number of records the next `step` reads from the detector's stream.
+     */
+    int nextBlockSize();
+
+    /**
+     * Reads the next block of the detector's stream and processes it, or finishes
+     * the detector if the stream has ended.
+     *
+     * @return `false` if the stream has ended, `true` otherwise.
+     */
+    boolean step();
+
+    /**
+     * Writes the state the detector has built from the blocks processed so far.
+     * Together with a checkpoint of its stream, it lets a new detector continue
+     * where this one is, without processing those blocks again.
+     */
+    void checkpoint(DataOutput out) throws IOException;
+
+    /**
+     * Replaces the state of the detector with one written by `checkpoint` of a
+     * detector created with the same arguments.
+     */
+    void restore(DataInput in) throws IOException;
+
+    /**
+     * Processes the detector's stream to its end.
+     */
+    @Override
+    void run();
+
+}
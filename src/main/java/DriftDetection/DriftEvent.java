@@ -0,0 +1,128 @@
+/*
+ *      DriftDetection/DriftEvent.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DriftDetection;
+
+
+/**
+ * Result of comparing a block of a stream with the ones before it, or the end of
+ * the stream.
+ *
+ * Records are indexed from zero. A drift is detected when the score of a block
+ * reaches its threshold, in which case the current concept ends at `position`.
+ */
+public final class DriftEvent {
+
+    /*--------------------------------------------------------------------------*
+     *                        STATIC MEMBERS AND METHODS                        *
+     *--------------------------------------------------------------------------*/
+
+    public static DriftEvent block(int conceptStart, int position, double score, double threshold) {
+        return new DriftEvent(conceptStart, position, score, threshold, false, 0);
+    }
+
+    public static DriftEvent endOfStream(int conceptStart, int position) {
+        return new DriftEvent(conceptStart, position, Double.NaN, Double.NaN, true, 0);
+    }
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    /**
+     * Index of the first record of the current concept.
+     */
+    public int conceptStart() {
+        return conceptStart;
+    }
+
+    /**
+     * Number of records before the compared block, or before the end of the stream.
+     */
+    public int position() {
+        return position;
+    }
+
+    public double score() {
+        return score;
+    }
+
+    public double threshold() {
+        return threshold;
+    }
+
+    public boolean isDrift() {
+        return score >= threshold;
+    }
+
+    public boolean isEndOfStream() {
+        return endOfStream;
+    }
+
+    /**
+     * Size of the compared blocks, for detectors that compare blocks of several
+     * sizes, or 0.
+     */
+    public int blockSize() {
+        return blockSize;
+    }
+
+    /**
+     * The same event, reported for blocks of the given size.
+     */
+    public DriftEvent forBlockSize(int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size should be positive.");
+        }
+        return new DriftEvent(conceptStart, position, score, threshold, endOfStream, blockSize);
+    }
+
+    @Override
+    public String toString() {
+        String resolution = blockSize > 0 ? "block size " + blockSize + ", " : "";
+        if (endOfStream) {
+            return "DriftEvent{" + resolution + "end of stream, concept " + conceptStart + "-" + position + "}";
+        }
+        return "DriftEvent{" + resolution + "concept " + conceptStart + "-" + position + ", score " + score +
+                ", threshold " + threshold + (isDrift() ? ", drift}" : "}");
+    }
+
+    private final int conceptStart;
+    private final int position;
+    private final double score;
+    private final double threshold;
+    private final boolean endOfStream;
+    private final int blockSize;
+
+    private DriftEvent(int conceptStart,
+                       int position,
+                       double score,
+                       double threshold,
+                       boolean endOfStream,
+                       int blockSize) {
+        this.conceptStart = conceptStart;
+        this.position = position;
+        this.score = score;
+        this.threshold = threshold;
+        this.endOfStream = endOfStream;
+        this.blockSize = blockSize;
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+ *      DriftDetection/JmxMetrics.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DriftDetection;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+
+/**
+ * Metrics exposed as the read-only attributes of an MBean named
+ * `DriftDetection:type=Metrics,name=<name>` on the platform MBean server, e.g.
+ * to be watched in JConsole.
+ *
+ * A count is exposed under its name, along with its rate per second since the
+ * metrics were created as `<name>.rate`. A duration is exposed as the number of
+ * times it was measured, their total, mean and maximum, as `<name>.count`,
+ * `<name>.total`, `<name>.mean` and `<name>.max`. A gauge is exposed under its
+ * name.
+ */
+public final class JmxMetrics implements Metrics, DynamicMBean, AutoCloseable {
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    public JmxMetrics(String name) throws JMException {
+        this.server = ManagementFactory.getPlatformMBeanServer();
+        this.objectName = new ObjectName("DriftDetection:type=Metrics,name=" + ObjectName.quote(name));
+        server.registerMBean(this, objectName);
+    }
+
+    @Override
+    public void count(String name, long amount) {
+        counts.computeIfAbsent(name, key -> new LongAdder()).add(amount);
+    }
+
+    @Override
+    public void time(String name, long duration) {
+        durations.computeIfAbsent(name, key -> new Duration()).add(duration);
+    }
+
+    @Override
+    public void gauge(String name, long value) {
+        gauges.computeIfAbsent(name, key -> new AtomicLong()).set(value);
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        if (counts.containsKey(attribute)) {
+            return counts.get(attribute).sum();
+        }
+        if (gauges.containsKey(attribute)) {
+            return gauges.get(attribute).get();
+        }
+
+        int separator = attribute.lastIndexOf('.');
+        if (separator != -1) {
+            String name = attribute.substring(0, separator);
+            String statistic = attribute.substring(separator + 1);
+
+            if (counts.containsKey(name) && statistic.equals("rate")) {
+                double elapsed = (System.nanoTime() - createdAt) / 1e9;
+                return counts.get(name).sum() / elapsed;
+            }
+            if (durations.containsKey(name)) {
+                Duration duration = durations.get(name);
+                switch (statistic) {
+                    case "count":
+                        return duration.count.sum();
+                    case "total":
+                        return duration.total.sum();
+                    case "mean":
+                        long count = duration.count.sum();
+                        return count == 0 ? 0.0 : (double) duration.total.sum() / count;
+                    case "max":
+                        return duration.max.get();
+                }
+            }
+        }
+
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // Attributes that are not found are left out of the list.
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only.");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    /**
+     * Describes the metrics measured so far.
+     */
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (String name : counts.keySet()) {
+            attributes.add(attribute(name, "long"));
+            attributes.add(attribute(name + ".rate", "double"));
+        }
+        for (String name : durations.keySet()) {
+            attributes.add(attribute(name + ".count", "long"));
+            attributes.add(attribute(name + ".total", "long"));
+            attributes.add(attribute(name + ".mean", "double"));
+            attributes.add(attribute(name + ".max", "long"));
+        }
+        for (String name : gauges.keySet()) {
+            attributes.add(attribute(name, "long"));
+        }
+
+        return new MBeanInfo(getClass().getName(), "Drift detection metrics.",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+
+    /**
+     * Unregisters the MBean.
+     */
+    @Override
+    public void close() throws JMException {
+        server.unregisterMBean(objectName);
+    }
+
+    private final MBeanServer server;
+    private final ObjectName objectName;
+    private final long createdAt = System.nanoTime();
+
+    private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+    private final Map<String, Duration> durations = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> gauges = new ConcurrentHashMap<>();
+
+    private static MBeanAttributeInfo attribute(String name, String type) {
+        return new MBeanAttributeInfo(name, type, name, true, false, false);
+    }
+
+    private static final class Duration {
+        final LongAdder count = new LongAdder();
+        final LongAdder total = new LongAdder();
+        final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        void add(long duration) {
+            count.increment();
+            total.add(duration);
+            max.accumulate(duration);
+        }
+    }
+
+}
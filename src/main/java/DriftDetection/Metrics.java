@@ -0,0 +1,115 @@
+/*
+ *      DriftDetection/Metrics.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DriftDetection;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+
+/**
+ * Receives measurements from the hot paths of readers and detectors: counts,
+ * durations in nanoseconds, and gauges that hold the latest value. Names are the
+ * constants below. Implementations should be thread-safe, since pipelines and
+ * executors measure on their own threads.
+ *
+ * Instrumented code reads the clock and allocation counters through `now` and
+ * `allocatedBytes`, so that `none`, the default, neither reads them nor records
+ * anything, and its calls are inlined away once compiled.
+ */
+public interface Metrics {
+
+    /*--------------------------------------------------------------------------*
+     *                        STATIC MEMBERS AND METHODS                        *
+     *--------------------------------------------------------------------------*/
+
+    // Records parsed, the time spent parsing them, and the number of values in the dictionary.
+    String recordsParsed = "reader.records";
+    String parseTime = "reader.parseTime";
+    String dictionarySize = "reader.dictionarySize";
+
+    // Size of the last block and the bytes its processing allocated on the detector's thread.
+    String blockSize = "block.size";
+    String allocatedBytesPerBlock = "block.allocatedBytes";
+
+    // Time spent per block in each phase of its processing.
+    String statisticsTime = "block.statisticsTime";
+    String contextSelectionTime = "block.contextSelectionTime";
+    String distanceTime = "block.distanceTime";
+    String decisionTime = "block.decisionTime";
+
+    // Events reported to listeners, and how many of them are drifts.
+    String events = "detector.events";
+    String drifts = "detector.drifts";
+
+    Metrics none = new Metrics() {
+        @Override
+        public long now() {
+            return 0;
+        }
+
+        @Override
+        public long allocatedBytes() {
+            return 0;
+        }
+
+        @Override
+        public void count(String name, long amount) {
+        }
+
+        @Override
+        public void time(String name, long duration) {
+        }
+
+        @Override
+        public void gauge(String name, long value) {
+        }
+    };
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    /**
+     * Time in nanoseconds to measure durations from.
+     */
+    default long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Bytes allocated so far by the current thread, or zero if the JVM does not
+     * tell.
+     */
+    default long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    void count(String name, long amount);
+
+    void time(String name, long duration);
+
+    void gauge(String name, long value);
+
+}
@@ -19,6 +19,7 @@
  */
 
 import DataStreamReader.*;
+import DriftDetection.*;
 
 
 public class Main {
@@ -28,7 +29,9 @@ public class Main {
         final double minChangeDegree = 0.1;
 
         CategoricalRecordStreamReader stream = new CategoricalRecordStreamReader("data/kddcup_10_percent.txt", false);
-        new CDDA.DriftDetector(stream, blockSize, minChangeDegree).run();
+        DriftDetector detector = new CDDA.DriftDetector(stream, blockSize, minChangeDegree);
+        detector.addListener(new ConceptPrinter(System.out));
+        detector.run();
     }
 
     public static void runCDCStream() throws Exception {
@@ -36,11 +39,25 @@ public class Main {
         final double driftCoefficient = 3;
 
         CategoricalRecordStreamReader stream = new CategoricalRecordStreamReader("data/kddcup_10_percent.txt", false);
-        new CDCStream.DriftDetector(stream, blockSize, driftCoefficient).run();
+        DriftDetector detector = new CDCStream.DriftDetector(stream, blockSize, driftCoefficient);
+        detector.addListener(new ConceptPrinter(System.out));
+        detector.run();
+    }
+
+    public static void runBackfill() throws Exception {
+        final int blockSize = 10000;
+        final double driftCoefficient = 3;
+
+        BatchDriftDetector detector = new CDCStream.DriftDetector(null, blockSize, driftCoefficient);
+        detector.addListener(new ConceptPrinter(System.out));
+        try (Backfill backfill = new Backfill(Runtime.getRuntime().availableProcessors())) {
+            backfill.run("data/kddcup_10_percent.txt", false, detector);
+        }
     }
 
     public static void main(String[] args) throws Exception {
         //runCDDA();
+        //runBackfill();
         runCDCStream();
     }
 
@@ -0,0 +1,106 @@
+/*
+ *      CDCStream/DILCATest.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package CDCStream;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+import DataStreamReader.CategoricalBlock;
+import DataStreamReader.ChannelCategoricalStreamReader;
+
+
+public class DILCATest {
+
+    @Test
+    public void summaryMatchesMatrixOnRandomStatistics() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            // Up to 30 values per attribute, in dense and sparse tables, and skewed so that contexts differ.
+            int numAttributes = 2 + random.nextInt(5);
+            int[] domainSizes = new int[numAttributes];
+            for (int i = 0; i < numAttributes; i++) {
+                domainSizes[i] = 1 + random.nextInt(30);
+            }
+            int sparseThreshold = random.nextBoolean() ? 64 : DatabaseStatistics.defaultSparseThreshold;
+            DatabaseStatistics statistics = new DatabaseStatistics(numAttributes, sparseThreshold);
+            statistics.add(randomBlock(random, 1 + random.nextInt(500), domainSizes));
+
+            assertSameSummaries(statistics);
+        }
+    }
+
+    @Test
+    public void singleAttributeSummaryIsZero() {
+        DatabaseStatistics statistics = new DatabaseStatistics(1);
+        statistics.add(randomBlock(new Random(8), 100, new int[]{10}));
+
+        assertEquals(0, DILCA.summaryFor(statistics, SymmetricalUncertainties.of(statistics), 0), 0);
+        assertSameSummaries(statistics);
+    }
+
+    @Test
+    public void singleValueSummaryIsZero() {
+        DatabaseStatistics statistics = new DatabaseStatistics(3);
+        statistics.add(randomBlock(new Random(9), 100, new int[]{1, 5, 5}));
+
+        assertEquals(0, DILCA.summaryFor(statistics, SymmetricalUncertainties.of(statistics), 0), 0);
+        assertSameSummaries(statistics);
+    }
+
+    private static void assertSameSummaries(DatabaseStatistics statistics) {
+        SymmetricalUncertainties uncertainties = SymmetricalUncertainties.of(statistics);
+        double matrixSummary;
+        for (int target = 0; target < statistics.numAttributes(); target++) {
+            matrixSummary = DILCA.distanceMatrixFor(statistics, uncertainties, target).normalizedSquaredSumRoot();
+            assertEquals("Summary of attribute " + target, matrixSummary,
+                    DILCA.summaryFor(statistics, uncertainties, target), 1e-9 * matrixSummary);
+        }
+    }
+
+    /**
+     * Block of records whose values mostly follow the value of the first
+     * attribute.
+     */
+    private static CategoricalBlock randomBlock(Random random, int numRecords, int[] domainSizes) {
+        StringBuilder csv = new StringBuilder();
+        int first, value;
+        for (int record = 0; record < numRecords; record++) {
+            first = random.nextInt(domainSizes[0]);
+            for (int i = 0; i < domainSizes.length; i++) {
+                value = i == 0 ? first :
+                        random.nextInt(4) > 0 ? (first * (i + 1)) % domainSizes[i] : random.nextInt(domainSizes[i]);
+                csv.append(i > 0 ? "," : "").append('v').append(value);
+            }
+            csv.append('\n');
+        }
+
+        ChannelCategoricalStreamReader reader = new ChannelCategoricalStreamReader(false);
+        reader.feed(ByteBuffer.wrap(csv.toString().getBytes(StandardCharsets.UTF_8)));
+        reader.endOfInput();
+        return reader.block(numRecords);
+    }
+
+}
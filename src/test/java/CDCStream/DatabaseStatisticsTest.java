@@ -0,0 +1,178 @@
+/*
+ *      CDCStream/DatabaseStatisticsTest.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package CDCStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import DataStreamReader.CategoricalDictionary;
+import DataStreamReader.MappedCategoricalStreamReader;
+import DriftDetection.DriftingCsv;
+
+
+public class DatabaseStatisticsTest {
+
+    private static final int numPartitions = 3;
+    private static final int recordsPerPartition = 1000;
+    // Small enough that some pairs of attributes keep sparse tables.
+    private static final int sparseThreshold = 16;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void partitionsMergedInAnyOrderMatchWholeFile() throws IOException {
+        byte[][] partitions = new byte[numPartitions][];
+        ByteArrayOutputStream whole = new ByteArrayOutputStream();
+        for (int p = 0; p < numPartitions; p++) {
+            partitions[p] = DriftingCsv.generate(p, recordsPerPartition, 300 + 100 * p, false);
+            whole.write(partitions[p]);
+        }
+        DatabaseStatistics wholeStatistics = newStatistics();
+        count(whole.toByteArray(), wholeStatistics);
+        double expected = summaryOf(wholeStatistics);
+
+        // Count every partition with a dictionary of its own, and read its statistics back.
+        DatabaseStatistics[] statistics = new DatabaseStatistics[numPartitions];
+        CategoricalDictionary[] dictionaries = new CategoricalDictionary[numPartitions];
+        for (int p = 0; p < numPartitions; p++) {
+            statistics[p] = newStatistics();
+            dictionaries[p] = count(partitions[p], statistics[p]);
+            byte[] bytes = bytesOf(statistics[p]);
+            statistics[p] = read(bytes);
+            assertArrayEquals(bytes, bytesOf(statistics[p]));
+        }
+
+        for (int[] order : new int[][]{{0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0}}) {
+            CategoricalDictionary dictionary = new CategoricalDictionary();
+            DatabaseStatistics merged = newStatistics();
+            for (int p : order) {
+                merged.merge(statistics[p], dictionary.encodeAll(dictionaries[p]));
+            }
+
+            assertEquals(numPartitions * recordsPerPartition, merged.numRecords());
+            assertEquals("Summary of order " + Arrays.toString(order), expected, summaryOf(merged), 0);
+            assertEquals(expected, summaryOf(read(bytesOf(merged))), 0);
+        }
+    }
+
+    @Test
+    public void truncatedInputFails() throws IOException {
+        byte[] bytes = smallStatisticsBytes();
+        assertCorrupt(Arrays.copyOf(bytes, bytes.length - 4));
+    }
+
+    @Test
+    public void invalidSizesFail() throws IOException {
+        byte[] bytes = smallStatisticsBytes();
+
+        // Number of attributes, sparse threshold and number of records.
+        for (int position = 0; position < 12; position += 4) {
+            assertCorrupt(withInt(bytes, position, -1));
+        }
+        assertCorrupt(withInt(bytes, 0, Integer.MAX_VALUE));
+        // Capacity and domain size of the first attribute.
+        assertCorrupt(withInt(bytes, 12, -1));
+        assertCorrupt(withInt(bytes, 16, -1));
+        assertCorrupt(withInt(bytes, 16, ByteBuffer.wrap(bytes).getInt(12) + 1));
+    }
+
+    @Test
+    public void invalidCodesFail() throws IOException {
+        byte[] bytes = smallStatisticsBytes();
+        int capacity = ByteBuffer.wrap(bytes).getInt(12);
+
+        // First value of the first attribute, and its count.
+        assertCorrupt(withInt(bytes, 20, capacity));
+        assertCorrupt(withInt(bytes, 20, -1));
+        assertCorrupt(withInt(bytes, 24, 0));
+        assertCorrupt(withInt(bytes, 24, 1000));
+    }
+
+    private static DatabaseStatistics newStatistics() {
+        return new DatabaseStatistics(DriftingCsv.numAttributes, sparseThreshold);
+    }
+
+    /**
+     * Adds the records of the CSV to the statistics, and returns the dictionary
+     * that encoded them.
+     */
+    private CategoricalDictionary count(byte[] csv, DatabaseStatistics statistics) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), csv);
+
+        try (MappedCategoricalStreamReader stream = new MappedCategoricalStreamReader(file.getPath(), false)) {
+            statistics.add(stream.block(Integer.MAX_VALUE));
+            return stream.dictionary();
+        }
+    }
+
+    private byte[] smallStatisticsBytes() throws IOException {
+        DatabaseStatistics statistics = newStatistics();
+        count(DriftingCsv.generate(1, 100, 50, false), statistics);
+        return bytesOf(statistics);
+    }
+
+    private static double summaryOf(DatabaseStatistics statistics) {
+        return new DriftDetector(null, 1, 1).summaryOf(statistics);
+    }
+
+    private static byte[] bytesOf(DatabaseStatistics statistics) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        statistics.writeTo(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static DatabaseStatistics read(byte[] bytes) throws IOException {
+        return DatabaseStatistics.readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    private static byte[] withInt(byte[] bytes, int position, int value) {
+        byte[] copy = bytes.clone();
+        ByteBuffer.wrap(copy).putInt(position, value);
+        return copy;
+    }
+
+    private static void assertCorrupt(byte[] bytes) {
+        try {
+            read(bytes);
+            fail("Reading corrupt statistics should fail.");
+        } catch (IOException e) {
+            // Expected.
+        }
+    }
+
+}
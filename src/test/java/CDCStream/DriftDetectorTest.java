@@ -0,0 +1,123 @@
+/*
+ *      CDCStream/DriftDetectorTest.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package CDCStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+
+import DataStreamReader.MappedCategoricalStreamReader;
+import DriftDetection.CountingMetrics;
+import DriftDetection.DriftingCsv;
+import DriftDetection.Metrics;
+
+
+public class DriftDetectorTest {
+
+    private static final int numRecords = 4000;
+    private static final int blockSize = 200;
+    private static final int numBlocks = numRecords / blockSize;
+
+    @ClassRule
+    public static final TemporaryFolder folder = new TemporaryFolder();
+
+    private static File file;
+
+    @BeforeClass
+    public static void writeFile() throws IOException {
+        file = folder.newFile("stream.csv");
+        Files.write(file.toPath(), DriftingCsv.generate(5, numRecords, 1000, false));
+    }
+
+    @Test
+    public void phasesAreTimedOncePerBlock() throws IOException {
+        CountingMetrics metrics = run(new DriftDetector(null, blockSize, 3));
+
+        assertEquals(numBlocks, metrics.numReports(Metrics.statisticsTime));
+        assertEquals(numBlocks, metrics.numReports(Metrics.contextSelectionTime));
+        assertEquals(numBlocks, metrics.numReports(Metrics.distanceTime));
+    }
+
+    @Test
+    public void sketchedPhasesAreTimedOncePerBlock() throws IOException {
+        DriftDetector detector = new DriftDetector(null, blockSize, 3);
+        detector.setApproximation(0.01, 0.01);
+        CountingMetrics metrics = run(detector);
+
+        assertEquals(numBlocks, metrics.numReports(Metrics.statisticsTime));
+        assertEquals(numBlocks, metrics.numReports(Metrics.contextSelectionTime));
+        assertEquals(numBlocks, metrics.numReports(Metrics.distanceTime));
+    }
+
+    @Test
+    public void parallelPhasesAreTimedOncePerBlock() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            DriftDetector detector = new DriftDetector(null, blockSize, 3);
+            detector.setExecutor(executor);
+            CountingMetrics metrics = run(detector);
+
+            assertEquals(numBlocks, metrics.numReports(Metrics.contextSelectionTime));
+            assertEquals(numBlocks, metrics.numReports(Metrics.distanceTime));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void multiResolutionPhasesAreTimedOncePerBlock() throws IOException {
+        CountingMetrics metrics = run(
+                new MultiResolutionDriftDetector(null, new int[]{blockSize, 2 * blockSize, 4 * blockSize}, 3));
+
+        // Statistics of larger blocks are merged while processing the block that completes them.
+        assertEquals(numBlocks, metrics.numReports(Metrics.statisticsTime));
+        assertEquals(numBlocks + numBlocks / 2 + numBlocks / 4, metrics.numReports(Metrics.contextSelectionTime));
+        assertEquals(numBlocks + numBlocks / 2 + numBlocks / 4, metrics.numReports(Metrics.distanceTime));
+    }
+
+    /**
+     * Processes the blocks of the file with the detector, which was created
+     * without a stream, and returns the metrics it reported.
+     */
+    private static CountingMetrics run(DriftDetection.DriftDetector detector) throws IOException {
+        CountingMetrics metrics = new CountingMetrics();
+        detector.setMetrics(metrics);
+
+        try (MappedCategoricalStreamReader stream = new MappedCategoricalStreamReader(file.getPath(), false)) {
+            for (int i = 0; i < numBlocks; i++) {
+                detector.process(stream.block(blockSize));
+                stream.discard(blockSize);
+            }
+        }
+        detector.finish();
+        return metrics;
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ *      CDCStream/MultiResolutionDriftDetectorTest.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package CDCStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import DataStreamReader.MappedCategoricalStreamReader;
+import DriftDetection.DriftingCsv;
+
+
+public class MultiResolutionDriftDetectorTest {
+
+    private static final int[] blockSizes = {100, 300, 900};
+
+    @ClassRule
+    public static final TemporaryFolder folder = new TemporaryFolder();
+
+    private static File file;
+
+    @BeforeClass
+    public static void writeFile() throws IOException {
+        file = folder.newFile("stream.csv");
+        Files.write(file.toPath(), DriftingCsv.generate(6, 10000, 1500, true));
+    }
+
+    @Test
+    public void eventsMatchSeparateDetectors() throws IOException {
+        List<String> expected = new ArrayList<>();
+        for (int blockSize : blockSizes) {
+            try (MappedCategoricalStreamReader stream = new MappedCategoricalStreamReader(file.getPath(), true)) {
+                DriftDetector detector = new DriftDetector(stream, blockSize, 2);
+                detector.addListener(event -> expected.add(event.forBlockSize(blockSize).toString()));
+                detector.run();
+            }
+        }
+
+        List<String> actual = new ArrayList<>();
+        try (MappedCategoricalStreamReader stream = new MappedCategoricalStreamReader(file.getPath(), true)) {
+            MultiResolutionDriftDetector detector = new MultiResolutionDriftDetector(stream, blockSizes, 2);
+            for (int blockSize : blockSizes) {
+                detector.addListener(blockSize, event -> actual.add(event.toString()));
+            }
+            detector.run();
+        }
+
+        assertTrue("Stream should drift.", expected.stream().filter(event -> event.contains("drift")).count() > 1);
+        expected.sort(null);
+        actual.sort(null);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void eventsTellTheirBlockSizes() throws IOException {
+        int[] numEvents = new int[blockSizes.length];
+        try (MappedCategoricalStreamReader stream = new MappedCategoricalStreamReader(file.getPath(), true)) {
+            MultiResolutionDriftDetector detector = new MultiResolutionDriftDetector(stream, blockSizes, 2);
+            detector.addListener(event -> {
+                for (int level = 0; level < blockSizes.length; level++) {
+                    if (event.blockSize() == blockSizes[level]) {
+                        numEvents[level]++;
+                    }
+                }
+            });
+            detector.run();
+        }
+
+        // Every size reports its blocks from the third one on, and the end of the stream.
+        for (int level = 0; level < blockSizes.length; level++) {
+            assertEquals((10000 + blockSizes[level] - 1) / blockSizes[level] - 2 + 1, numEvents[level]);
+        }
+    }
+
+    @Test
+    public void resumesFromCheckpointsTakenByListeners() throws IOException {
+        List<String> expected = new ArrayList<>();
+        try (MappedCategoricalStreamReader stream = new MappedCategoricalStreamReader(file.getPath(), true)) {
+            MultiResolutionDriftDetector detector = new MultiResolutionDriftDetector(stream, blockSizes, 2);
+            detector.addListener(event -> expected.add(event.toString()));
+            detector.run();
+        }
+
+        // Checkpoint after an event of the middle size, while the block of the largest size is incomplete.
+        List<String> actual = new ArrayList<>();
+        ByteArrayOutputStream checkpoint = new ByteArrayOutputStream();
+        try (MappedCategoricalStreamReader stream = new MappedCategoricalStreamReader(file.getPath(), true)) {
+            MultiResolutionDriftDetector detector = new MultiResolutionDriftDetector(stream, blockSizes, 2);
+            detector.addListener(event -> actual.add(event.toString()));
+            detector.addListener(blockSizes[1], event -> {
+                if (checkpoint.size() == 0 && event.position() % blockSizes[2] != 0) {
+                    try {
+                        DataOutputStream out = new DataOutputStream(checkpoint);
+                        stream.checkpoint(out);
+                        detector.checkpoint(out);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+            while (checkpoint.size() == 0 && detector.step()) {
+                // Process the stream until the checkpoint is taken.
+            }
+        }
+        assertTrue("Checkpoint should be taken.", checkpoint.size() > 0);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(checkpoint.toByteArray()));
+        try (MappedCategoricalStreamReader stream = MappedCategoricalStreamReader.resume(file.getPath(), in)) {
+            MultiResolutionDriftDetector detector = new MultiResolutionDriftDetector(stream, blockSizes, 2);
+            detector.restore(in);
+            detector.addListener(event -> actual.add(event.toString()));
+            detector.run();
+        }
+
+        assertEquals(expected, actual);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCheckpointsOfOtherBlockSizes() throws IOException {
+        ByteArrayOutputStream checkpoint = new ByteArrayOutputStream();
+        new MultiResolutionDriftDetector(null, blockSizes, 2).checkpoint(new DataOutputStream(checkpoint));
+
+        new MultiResolutionDriftDetector(null, new int[]{100, 200}, 2).restore(
+                new DataInputStream(new ByteArrayInputStream(checkpoint.toByteArray())));
+    }
+
+}
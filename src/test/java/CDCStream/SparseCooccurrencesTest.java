@@ -0,0 +1,108 @@
+/*
+ *      CDCStream/SparseCooccurrencesTest.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package CDCStream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+
+public class SparseCooccurrencesTest {
+
+    @Test
+    public void rowsFollowChanges() {
+        SparseCooccurrences table = new SparseCooccurrences();
+        table.add(3, 7, 2);
+        table.add(3, 1, 1);
+        assertRow(table, true, 3, new int[]{1, 7}, new int[]{1, 2});
+        assertRow(table, false, 7, new int[]{3}, new int[]{2});
+
+        // Rows are sorted again once counts change after being read.
+        table.add(0, 7, 4);
+        table.add(3, 1, -1);
+        assertRow(table, true, 3, new int[]{7}, new int[]{2});
+        assertRow(table, false, 7, new int[]{0, 3}, new int[]{4, 2});
+        assertRow(table, false, 1, new int[0], new int[0]);
+        assertRow(table, true, 100, new int[0], new int[0]);
+
+        table.clear();
+        assertRow(table, false, 7, new int[0], new int[0]);
+        table.add(5, 2, 1);
+        assertRow(table, true, 5, new int[]{2}, new int[]{1});
+    }
+
+    @Test
+    public void concurrentReadersSeeTheSameRows() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 20; round++) {
+                SparseCooccurrences table = new SparseCooccurrences();
+                for (int value = 0; value < 1000; value++) {
+                    table.add(value % 37, (value * 31 + round) % 101, 1 + value % 5);
+                }
+                String expected = rowsOf(table);
+
+                // Readers race to sort the rows for the first time.
+                table.add(0, 0, 1);
+                table.add(0, 0, -1);
+                List<Callable<String>> readers = new ArrayList<>();
+                for (int reader = 0; reader < 8; reader++) {
+                    readers.add(() -> rowsOf(table));
+                }
+                for (Future<String> rows : executor.invokeAll(readers)) {
+                    assertEquals(expected, rows.get());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void assertRow(SparseCooccurrences table, boolean ofFirst, int value,
+                                  int[] expectedValues, int[] expectedCounts) {
+        int[] values = new int[16], counts = new int[16];
+        int size = table.row(ofFirst, value, values, counts);
+        assertArrayEquals(expectedValues, Arrays.copyOf(values, size));
+        assertArrayEquals(expectedCounts, Arrays.copyOf(counts, size));
+    }
+
+    private static String rowsOf(SparseCooccurrences table) {
+        int[] values = new int[101], counts = new int[101];
+        StringBuilder rows = new StringBuilder();
+        int size;
+        for (int value = 0; value < 37; value++) {
+            size = table.row(true, value, values, counts);
+            rows.append(Arrays.toString(Arrays.copyOf(values, size)))
+                    .append(Arrays.toString(Arrays.copyOf(counts, size)));
+        }
+        return rows.toString();
+    }
+
+}
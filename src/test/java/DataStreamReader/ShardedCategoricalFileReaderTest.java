@@ -0,0 +1,124 @@
+/*
+ *      DataStreamReader/ShardedCategoricalFileReaderTest.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DataStreamReader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import DriftDetection.DriftingCsv;
+
+
+public class ShardedCategoricalFileReaderTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void shutDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void smallShardsGiveSequentialBlocks() throws IOException {
+        assertSameBlocks(false, 50, 97);
+    }
+
+    @Test
+    public void smallShardsGiveSequentialBlocksAfterHeader() throws IOException {
+        assertSameBlocks(true, 37, 97);
+    }
+
+    @Test
+    public void tinyShardsGiveSequentialBlocks() throws IOException {
+        assertSameBlocks(true, 20, 5);
+    }
+
+    @Test
+    public void fileSizedShardGivesSequentialBlocks() throws IOException {
+        assertSameBlocks(true, 50, 0);
+    }
+
+    private void assertSameBlocks(boolean hasHeader, int blockSize, long shardSize) throws IOException {
+        byte[] csv = DriftingCsv.generate(3, 400, 100, hasHeader);
+        if (shardSize > 0) {
+            assertTrue("Shards should start inside quoted values.",
+                    DriftingCsv.numQuotedBoundaries(csv, shardSize) > 0);
+        }
+        File file = folder.newFile();
+        Files.write(file.toPath(), csv);
+
+        List<byte[]> expected = new ArrayList<>();
+        try (MappedCategoricalStreamReader stream = new MappedCategoricalStreamReader(file.getPath(), hasHeader)) {
+            CategoricalBlock block;
+            while (true) {
+                try {
+                    block = stream.block(blockSize);
+                } catch (NoSuchElementException e) {
+                    break;
+                }
+                expected.add(bytesOf(block));
+                stream.discard(block.size());
+            }
+        }
+
+        List<byte[]> actual = new ArrayList<>();
+        try (ShardedCategoricalFileReader reader =
+                     new ShardedCategoricalFileReader(file.getPath(), hasHeader, blockSize, executor, shardSize)) {
+            assertEquals(expected.size(), reader.numBlocks());
+            while (reader.hasNext()) {
+                for (CategoricalBlock block : reader.nextBlocks(3)) {
+                    actual.add(bytesOf(block));
+                }
+            }
+        }
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals("Block " + i + " should match.", expected.get(i), actual.get(i));
+        }
+    }
+
+    private static byte[] bytesOf(CategoricalBlock block) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        block.writeTo(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ *      DriftDetection/AdaptiveBlockSizeTest.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DriftDetection;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import DataStreamReader.MappedCategoricalStreamReader;
+
+
+public class AdaptiveBlockSizeTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void cdcStreamStopsNotifyingReplacedPolicy() throws IOException {
+        assertReplacedPolicyIsNotNotified(stream -> new CDCStream.DriftDetector(stream, 200, 3),
+                (detector, policy) -> ((CDCStream.DriftDetector) detector).setAdaptiveBlockSize(policy));
+    }
+
+    @Test
+    public void cddaStopsNotifyingReplacedPolicy() throws IOException {
+        assertReplacedPolicyIsNotNotified(stream -> new CDDA.DriftDetector(stream, 200, 0.1),
+                (detector, policy) -> ((CDDA.DriftDetector) detector).setAdaptiveBlockSize(policy));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cdcStreamRejectsNullPolicy() {
+        new CDCStream.DriftDetector(null, 200, 3).setAdaptiveBlockSize(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cddaRejectsNullPolicy() {
+        new CDDA.DriftDetector(null, 200, 0.1).setAdaptiveBlockSize(null);
+    }
+
+    /**
+     * Runs a detector whose policy replaced one that grows blocks once it has
+     * been notified of scores that vary, and checks that the replaced policy was
+     * not notified, unlike a listener that was.
+     */
+    private void assertReplacedPolicyIsNotNotified(Function<MappedCategoricalStreamReader, DriftDetector> detectorFor,
+                                                   BiConsumer<DriftDetector, AdaptiveBlockSize> setPolicy)
+            throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), DriftingCsv.generate(10, 4000, 1000, false));
+
+        AdaptiveBlockSize replaced = new AdaptiveBlockSize(200, 400, 200).maxScoreVariation(0);
+        AdaptiveBlockSize notified = new AdaptiveBlockSize(200, 400, 200).maxScoreVariation(0);
+        try (MappedCategoricalStreamReader stream = new MappedCategoricalStreamReader(file.getPath(), false)) {
+            DriftDetector detector = detectorFor.apply(stream);
+            setPolicy.accept(detector, replaced);
+            setPolicy.accept(detector, new AdaptiveBlockSize(200, 200, 200));
+            detector.addListener(notified);
+            detector.run();
+        }
+
+        replaced.update(200, 0, 0);
+        notified.update(200, 0, 0);
+        assertEquals(200, replaced.size());
+        assertTrue("Notified policy should grow.", notified.size() > 200);
+    }
+
+}
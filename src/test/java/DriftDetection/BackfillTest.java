@@ -0,0 +1,129 @@
+/*
+ *      DriftDetection/BackfillTest.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DriftDetection;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import DataStreamReader.CategoricalStreamReader;
+import DataStreamReader.MappedCategoricalStreamReader;
+
+
+public class BackfillTest {
+
+    // Large enough to be split into several shards, whose boundaries fall inside quoted line breaks.
+    private static final int numRecords = 60000;
+    private static final long minShardSize = 1 << 20;
+
+    @ClassRule
+    public static final TemporaryFolder folder = new TemporaryFolder();
+
+    private static File file;
+
+    @BeforeClass
+    public static void writeFile() throws IOException {
+        byte[] csv = DriftingCsv.generate(4, numRecords, 7000, true);
+        assertTrue("File should have several shards.", csv.length > 2 * minShardSize);
+        assertTrue("Shards should start inside quoted values.",
+                DriftingCsv.numQuotedBoundaries(csv, minShardSize) > 0);
+
+        file = folder.newFile("stream.csv");
+        Files.write(file.toPath(), csv);
+    }
+
+    @Test(timeout = 120000)
+    public void cdcStreamBackfillMatchesRun() throws Exception {
+        assertSameEvents(stream -> new CDCStream.DriftDetector(stream, 500, 3));
+    }
+
+    @Test(timeout = 120000)
+    public void slidingCdcStreamBackfillMatchesRun() throws Exception {
+        assertSameEvents(stream -> new CDCStream.DriftDetector(stream, 1500, 500, 3));
+    }
+
+    @Test(timeout = 120000)
+    public void sketchedCdcStreamBackfillMatchesRun() throws Exception {
+        assertSameEvents(stream -> {
+            CDCStream.DriftDetector detector = new CDCStream.DriftDetector(stream, 500, 3);
+            detector.setApproximation(0.05, 0.01);
+            return detector;
+        });
+    }
+
+    @Test(timeout = 120000)
+    public void cddaBackfillMatchesRun() throws Exception {
+        assertSameEvents(stream -> new CDDA.DriftDetector(stream, 500, 0.1));
+    }
+
+    @Test(timeout = 120000)
+    public void detectorsWithoutStreamReportMetrics() throws Exception {
+        CountingMetrics metrics = new CountingMetrics();
+
+        List<DriftEvent> events = new ArrayList<>();
+        for (BatchDriftDetector detector : Arrays.<BatchDriftDetector>asList(
+                new CDCStream.DriftDetector(null, 500, 3), new CDDA.DriftDetector(null, 500, 0.1))) {
+            detector.setMetrics(metrics);
+            detector.addListener(events::add);
+            try (Backfill backfill = new Backfill(4)) {
+                backfill.run(file.getPath(), true, detector);
+            }
+        }
+
+        // Records are parsed by the backfill, not by the detectors' streams.
+        assertEquals(0, metrics.numReports(Metrics.recordsParsed));
+        assertEquals(2L * numRecords / 500, metrics.numReports(Metrics.blockSize));
+        assertEquals(events.stream().filter(DriftEvent::isDrift).count(), metrics.amount(Metrics.drifts));
+    }
+
+    private void assertSameEvents(Function<CategoricalStreamReader, BatchDriftDetector> detectorFor)
+            throws IOException {
+        List<String> expected = new ArrayList<>();
+        try (MappedCategoricalStreamReader stream = new MappedCategoricalStreamReader(file.getPath(), true)) {
+            DriftDetector detector = detectorFor.apply(stream);
+            detector.addListener(event -> expected.add(event.toString()));
+            detector.run();
+        }
+        assertTrue("Stream should drift.", expected.stream().filter(event -> event.contains("drift")).count() > 1);
+
+        List<String> actual = new ArrayList<>();
+        try (Backfill backfill = new Backfill(4)) {
+            BatchDriftDetector detector = detectorFor.apply(null);
+            detector.addListener(event -> actual.add(event.toString()));
+            backfill.run(file.getPath(), true, detector);
+        }
+
+        assertEquals(expected, actual);
+    }
+
+}
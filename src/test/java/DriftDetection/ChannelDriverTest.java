@@ -0,0 +1,154 @@
+/*
+ *      DriftDetection/ChannelDriverTest.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DriftDetection;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import DataStreamReader.CategoricalStreamReader;
+import DataStreamReader.ChannelCategoricalStreamReader;
+import DataStreamReader.MappedCategoricalStreamReader;
+
+
+public class ChannelDriverTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(timeout = 60000)
+    public void cdcStreamOverLoopbackMatchesFile() throws Exception {
+        assertSameEventsOverLoopback(stream -> new CDCStream.DriftDetector(stream, 200, 3));
+    }
+
+    @Test(timeout = 60000)
+    public void cddaOverLoopbackMatchesFile() throws Exception {
+        assertSameEventsOverLoopback(stream -> new CDDA.DriftDetector(stream, 200, 0.1));
+    }
+
+    @Test(timeout = 10000)
+    public void closedChannelFailsWithoutBeingAwaited() throws Exception {
+        Pipe pipe = Pipe.open();
+        pipe.source().close();
+
+        try (ChannelDriver driver = new ChannelDriver()) {
+            ChannelCategoricalStreamReader stream = new ChannelCategoricalStreamReader(false);
+            try {
+                driver.register(pipe.source(), stream, new CDCStream.DriftDetector(stream, 200, 3));
+                fail("Registering a closed channel should fail.");
+            } catch (IOException e) {
+                // Expected.
+            }
+            driver.awaitCompletion();
+        }
+    }
+
+    private void assertSameEventsOverLoopback(Function<CategoricalStreamReader, DriftDetector> detectorFor)
+            throws Exception {
+        byte[] csv = DriftingCsv.generate(1, 4000, 1000, false);
+        File file = folder.newFile("stream.csv");
+        Files.write(file.toPath(), csv);
+
+        List<String> expected = new ArrayList<>();
+        try (MappedCategoricalStreamReader stream = new MappedCategoricalStreamReader(file.getPath(), false)) {
+            DriftDetector detector = detectorFor.apply(stream);
+            detector.addListener(event -> expected.add(event.toString()));
+            detector.run();
+        }
+        assertTrue("Stream should drift.", expected.stream().filter(event -> event.contains("drift")).count() > 1);
+
+        List<String> actual = new ArrayList<>();
+        AtomicReference<Throwable> writeFailure = new AtomicReference<>();
+        try (ServerSocketChannel server = ServerSocketChannel.open();
+             ChannelDriver driver = new ChannelDriver()) {
+            server.bind(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0));
+            Thread writer = new Thread(() -> {
+                try {
+                    writeInChunks(server.getLocalAddress(), csv);
+                } catch (IOException | RuntimeException e) {
+                    writeFailure.set(e);
+                }
+            });
+            writer.start();
+
+            SocketChannel channel = server.accept();
+            ChannelCategoricalStreamReader stream = new ChannelCategoricalStreamReader(false);
+            DriftDetector detector = detectorFor.apply(stream);
+            detector.addListener(event -> actual.add(event.toString()));
+            driver.register(channel, stream, detector);
+
+            driver.awaitCompletion();
+            writer.join();
+        }
+
+        assertNull(writeFailure.get());
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Writes the bytes in chunks of random sizes, small enough that many line
+     * breaks, quoted values and escaped quotes are split across writes.
+     */
+    private static void writeInChunks(SocketAddress address, byte[] bytes) throws IOException {
+        Random random = new Random(2);
+        int numSplitLineBreaks = 0, position = 0, size;
+
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            while (position < bytes.length) {
+                size = Math.min(bytes.length - position, 1 + random.nextInt(31));
+                if (bytes[position + size - 1] == '\r') {
+                    numSplitLineBreaks++;
+                }
+                ByteBuffer chunk = ByteBuffer.wrap(bytes, position, size);
+                while (chunk.hasRemaining()) {
+                    channel.write(chunk);
+                }
+                position += size;
+            }
+        }
+
+        if (numSplitLineBreaks == 0) {
+            throw new IllegalStateException("No line break was split across writes.");
+        }
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ *      DriftDetection/CountingMetrics.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DriftDetection;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Metrics that count how many times every metric is reported, and add up the
+ * amounts of counts.
+ */
+public final class CountingMetrics implements Metrics {
+
+    /*--------------------------------------------------------------------------*
+     *                       INSTANCE MEMBERS AND METHODS                       *
+     *--------------------------------------------------------------------------*/
+
+    @Override
+    public long now() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public long allocatedBytes() {
+        return 0;
+    }
+
+    @Override
+    public void count(String name, long amount) {
+        amounts.merge(name, amount, Long::sum);
+        report(name);
+    }
+
+    @Override
+    public void time(String name, long duration) {
+        report(name);
+    }
+
+    @Override
+    public void gauge(String name, long value) {
+        report(name);
+    }
+
+    /**
+     * Number of times the metric was reported.
+     */
+    public long numReports(String name) {
+        return numReports.getOrDefault(name, 0L);
+    }
+
+    /**
+     * Sum of the amounts of a count.
+     */
+    public long amount(String name) {
+        return amounts.getOrDefault(name, 0L);
+    }
+
+    private final Map<String, Long> numReports = new ConcurrentHashMap<>();
+    private final Map<String, Long> amounts = new ConcurrentHashMap<>();
+
+    private void report(String name) {
+        numReports.merge(name, 1L, Long::sum);
+    }
+
+}
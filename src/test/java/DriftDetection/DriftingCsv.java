@@ -0,0 +1,104 @@
+/*
+ *      DriftDetection/DriftingCsv.java
+ *      Drift Detection
+ *
+ *  Copyright 2017 Ehsan Nezhadian
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package DriftDetection;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+
+/**
+ * Categorical CSV records whose distribution changes every given number of
+ * records, with CRLF line endings and quoted values that hold separators,
+ * quotes and line breaks.
+ */
+public final class DriftingCsv {
+
+    /*--------------------------------------------------------------------------*
+     *                        STATIC MEMBERS AND METHODS                        *
+     *--------------------------------------------------------------------------*/
+
+    public static final int numAttributes = 5;
+
+    public static byte[] generate(long seed, int numRecords, int conceptLength, boolean hasHeader) {
+        Random random = new Random(seed);
+        StringBuilder csv = new StringBuilder();
+
+        if (hasHeader) {
+            csv.append("first,\"second,attribute\",third,fourth,fifth\r\n");
+        }
+
+        // Attributes follow the first one in even concepts, and are independent and skewed in odd ones.
+        int first = 0, value;
+        boolean correlated;
+        for (int record = 0; record < numRecords; record++) {
+            correlated = (record / conceptLength) % 2 == 0;
+            for (int attribute = 0; attribute < numAttributes; attribute++) {
+                if (attribute == 0) {
+                    value = first = correlated ? random.nextInt(7) : 4 + random.nextInt(3);
+                } else if (correlated) {
+                    value = random.nextInt(10) < 9 ? (first + attribute) % 7 : random.nextInt(7);
+                } else {
+                    value = random.nextInt(3);
+                }
+                if (attribute > 0) {
+                    csv.append(',');
+                }
+                csv.append(valueOf(attribute, value));
+            }
+            csv.append("\r\n");
+        }
+
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Counts the multiples of `shardSize` that fall inside quoted values of the
+     * CSV, where a scan that starts at them cannot tell records apart.
+     */
+    public static int numQuotedBoundaries(byte[] csv, long shardSize) {
+        int numBoundaries = 0;
+        boolean quoted = false;
+        for (int position = 0; position < csv.length; position++) {
+            if (position > 0 && position % shardSize == 0 && quoted) {
+                numBoundaries++;
+            }
+            // Escaped quotes flip the state twice.
+            if (csv[position] == '"') {
+                quoted = !quoted;
+            }
+        }
+        return numBoundaries;
+    }
+
+    private static String valueOf(int attribute, int value) {
+        switch (value % 4) {
+            case 0:
+                return "v" + attribute + value;
+            case 1:
+                return "\"comma," + attribute + value + "\"";
+            case 2:
+                return "\"quote\"\"" + attribute + value + "\"";
+            default:
+                return "\"line\r\nbreak" + attribute + value + "\"";
+        }
+    }
+
+}